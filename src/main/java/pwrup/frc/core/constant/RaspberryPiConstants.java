@@ -3,4 +3,6 @@ package pwrup.frc.core.constant;
 public class RaspberryPiConstants {
     public static final int DEFAULT_PORT_COM = 5000;
     public static final int DEFAULT_PORT_AUTOB = 8080;
+    /** Where the roboRIO keeps the Pis found by the last discovery. */
+    public static final String DEFAULT_DISCOVERY_CACHE_PATH = "/home/lvuser/pi-discovery-cache.json";
 }
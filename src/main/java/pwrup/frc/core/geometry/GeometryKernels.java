@@ -0,0 +1,165 @@
+package pwrup.frc.core.geometry;
+
+/**
+ * Batch versions of the {@link TranslationMath}, {@link RotationMath} and
+ * {@link CustomMath} helpers over struct-of-arrays {@code double[]} inputs,
+ * e.g. the x and y coordinates of thousands of path points in two arrays.
+ *
+ * <p>
+ * Every kernel is a simple counted loop over the first {@code count} elements
+ * that does not allocate. Loops like {@link #squaredNorms} are plain
+ * arithmetic that C2 may auto-vectorize; whether it does depends on the JVM
+ * and CPU, and the loops with data-dependent branches ({@link #argMin},
+ * {@link #argMax}) are not vectorized. Output arrays may be the same as input
+ * arrays to work in place.
+ * </p>
+ *
+ * <p>
+ * There is deliberately no explicit SIMD path through the Vector API
+ * ({@code jdk.incubator.vector}): it is still an incubator module that needs
+ * {@code --add-modules} on every JVM loading this class, and the JIT only
+ * compiles it to SIMD instructions on x86-64 and AArch64, not on the 32-bit
+ * ARM roboRIO, where it would run slower than these plain loops.
+ * </p>
+ */
+public final class GeometryKernels {
+
+  private static final double TWO_PI = 2 * Math.PI;
+
+  private GeometryKernels() {
+  }
+
+  /** {@code out[i] = x[i]^2 + y[i]^2}, see {@link TranslationMath#getNorm2}. */
+  public static void squaredNorms(double[] x, double[] y, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = x[i] * x[i] + y[i] * y[i];
+    }
+  }
+
+  /** {@code out[i] = |(x[i], y[i])|}. */
+  public static void norms(double[] x, double[] y, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+    }
+  }
+
+  /**
+   * Scales every vector to {@code length}; zero vectors stay zero. See
+   * {@link TranslationMath#scaleToLength}.
+   */
+  public static void scaleToLength(double[] x, double[] y, double length, double[] outX, double[] outY,
+      int count) {
+    for (int i = 0; i < count; i++) {
+      double norm = Math.sqrt(x[i] * x[i] + y[i] * y[i]);
+      double scale = norm == 0 ? 0 : length / norm;
+      outX[i] = x[i] * scale;
+      outY[i] = y[i] * scale;
+    }
+  }
+
+  /** Wraps angles in degrees to [-180, 180), see {@link RotationMath#wrapTo180}. */
+  public static void wrapTo180(double[] degrees, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = degrees[i] - 360 * Math.floor((degrees[i] + 180) / 360);
+    }
+  }
+
+  /** Wraps angles in radians to [-pi, pi). */
+  public static void wrapToPi(double[] radians, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = radians[i] - TWO_PI * Math.floor((radians[i] + Math.PI) / TWO_PI);
+    }
+  }
+
+  /**
+   * {@code out[i]} is the smallest absolute difference between {@code a[i]} and
+   * {@code b[i]} in degrees, in [0, 180]. See
+   * {@link RotationMath#angleDifference180}.
+   */
+  public static void angleDifference180(double[] a, double[] b, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      double diff = a[i] - b[i];
+      out[i] = Math.abs(diff - 360 * Math.floor((diff + 180) / 360));
+    }
+  }
+
+  /**
+   * Smallest of the first {@code count} values, see {@link CustomMath#min}.
+   * {@code NaN} if any value is {@code NaN}.
+   */
+  public static double min(double[] values, int count) {
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      min = Math.min(min, values[i]);
+    }
+
+    return min;
+  }
+
+  /**
+   * Largest of the first {@code count} values, see {@link CustomMath#max}.
+   * {@code NaN} if any value is {@code NaN}.
+   */
+  public static double max(double[] values, int count) {
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      max = Math.max(max, values[i]);
+    }
+
+    return max;
+  }
+
+  /**
+   * Index of the smallest of the first {@code count} values, or -1 if none.
+   * {@code NaN} values are skipped, e.g. {@code argMin({1, 2, NaN})} is 0; if
+   * every value is {@code NaN} the result is 0.
+   */
+  public static int argMin(double[] values, int count) {
+    int best = -1;
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      if (values[i] < min) {
+        min = values[i];
+        best = i;
+      }
+    }
+
+    return count > 0 && best < 0 ? 0 : best;
+  }
+
+  /**
+   * Index of the largest of the first {@code count} values, or -1 if none.
+   * {@code NaN} values are skipped, e.g. {@code argMax({NaN, 2, 1})} is 1; if
+   * every value is {@code NaN} the result is 0.
+   */
+  public static int argMax(double[] values, int count) {
+    int best = -1;
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < count; i++) {
+      if (values[i] > max) {
+        max = values[i];
+        best = i;
+      }
+    }
+
+    return count > 0 && best < 0 ? 0 : best;
+  }
+
+  /** Applies {@link CustomMath#deadband(double, double, double)} to every value. */
+  public static void deadband(double[] input, double deadband, double minValue, double[] out, int count) {
+    double m = (1.0 - minValue) / (1.0 - deadband);
+    for (int i = 0; i < count; i++) {
+      double value = input[i];
+      double sign = value > 0 ? 1 : -1;
+      double scaled = m * (value - sign * deadband) + sign * minValue;
+      out[i] = Math.abs(value) < deadband ? 0 : scaled;
+    }
+  }
+
+  /** Applies {@link CustomMath#applyMinimumThreshold(double, double)} to every value. */
+  public static void applyMinimumThreshold(double[] values, double minValue, double[] out, int count) {
+    for (int i = 0; i < count; i++) {
+      out[i] = Math.abs(values[i]) < minValue ? 0 : values[i];
+    }
+  }
+}
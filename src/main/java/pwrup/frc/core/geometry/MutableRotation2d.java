@@ -0,0 +1,96 @@
+package pwrup.frc.core.geometry;
+
+import edu.wpi.first.math.geometry.Rotation2d;
+
+/**
+ * A rotation that is changed in place, for hot loops where allocating a new
+ * {@link Rotation2d} per operation causes GC jitter.
+ *
+ * <p>
+ * Like {@link Rotation2d} it keeps the angle together with its cosine and sine,
+ * so rotating vectors does not recompute them. Operations modify this instance
+ * and return it for chaining. Not thread safe.
+ * </p>
+ */
+public final class MutableRotation2d {
+
+  private double radians = 0.0;
+  private double cos = 1.0;
+  private double sin = 0.0;
+
+  public MutableRotation2d() {
+  }
+
+  public MutableRotation2d(double radians) {
+    setRadians(radians);
+  }
+
+  public double getRadians() {
+    return radians;
+  }
+
+  public double getDegrees() {
+    return Math.toDegrees(radians);
+  }
+
+  public double getCos() {
+    return cos;
+  }
+
+  public double getSin() {
+    return sin;
+  }
+
+  public MutableRotation2d setRadians(double radians) {
+    this.radians = radians;
+    this.cos = Math.cos(radians);
+    this.sin = Math.sin(radians);
+    return this;
+  }
+
+  public MutableRotation2d setDegrees(double degrees) {
+    return setRadians(Math.toRadians(degrees));
+  }
+
+  /** Copies {@code rotation}, including its already computed cosine and sine. */
+  public MutableRotation2d set(Rotation2d rotation) {
+    this.radians = rotation.getRadians();
+    this.cos = rotation.getCos();
+    this.sin = rotation.getSin();
+    return this;
+  }
+
+  public MutableRotation2d set(MutableRotation2d other) {
+    this.radians = other.radians;
+    this.cos = other.cos;
+    this.sin = other.sin;
+    return this;
+  }
+
+  /** Adds {@code other} to this rotation, wrapping the angle to (-pi, pi]. */
+  public MutableRotation2d rotateBy(MutableRotation2d other) {
+    double newCos = cos * other.cos - sin * other.sin;
+    double newSin = cos * other.sin + sin * other.cos;
+    this.cos = newCos;
+    this.sin = newSin;
+    this.radians = Math.atan2(newSin, newCos);
+    return this;
+  }
+
+  /** Negates the rotation. */
+  public MutableRotation2d unaryMinus() {
+    this.radians = -radians;
+    this.sin = -sin;
+    return this;
+  }
+
+  /** A new immutable copy, for passing to WPILib. */
+  public Rotation2d toRotation2d() {
+    return new Rotation2d(radians);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MutableRotation2d(Rads: %.2f, Deg: %.2f)", radians, getDegrees());
+  }
+}
@@ -0,0 +1,112 @@
+package pwrup.frc.core.geometry;
+
+import edu.wpi.first.math.geometry.Translation2d;
+
+/**
+ * A 2D vector that is changed in place, for hot loops where allocating a new
+ * {@link Translation2d} per operation causes GC jitter.
+ *
+ * <p>
+ * Operations modify this instance and return it for chaining. Convert to a
+ * {@link Translation2d} only at API boundaries with {@link #toTranslation2d()}.
+ * Not thread safe.
+ * </p>
+ */
+public final class MutableTranslation2d {
+
+  private double x;
+  private double y;
+
+  public MutableTranslation2d() {
+  }
+
+  public MutableTranslation2d(double x, double y) {
+    this.x = x;
+    this.y = y;
+  }
+
+  public double getX() {
+    return x;
+  }
+
+  public double getY() {
+    return y;
+  }
+
+  public MutableTranslation2d set(double x, double y) {
+    this.x = x;
+    this.y = y;
+    return this;
+  }
+
+  public MutableTranslation2d set(Translation2d translation) {
+    return set(translation.getX(), translation.getY());
+  }
+
+  public MutableTranslation2d set(MutableTranslation2d other) {
+    return set(other.x, other.y);
+  }
+
+  public MutableTranslation2d plus(double dx, double dy) {
+    x += dx;
+    y += dy;
+    return this;
+  }
+
+  public MutableTranslation2d plus(MutableTranslation2d other) {
+    return plus(other.x, other.y);
+  }
+
+  public MutableTranslation2d minus(MutableTranslation2d other) {
+    return plus(-other.x, -other.y);
+  }
+
+  public MutableTranslation2d times(double scalar) {
+    x *= scalar;
+    y *= scalar;
+    return this;
+  }
+
+  public MutableTranslation2d div(double scalar) {
+    return times(1.0 / scalar);
+  }
+
+  /** Rotates the vector counter-clockwise by {@code rotation}. */
+  public MutableTranslation2d rotateBy(MutableRotation2d rotation) {
+    double cos = rotation.getCos();
+    double sin = rotation.getSin();
+    return set(x * cos - y * sin, x * sin + y * cos);
+  }
+
+  public double getNorm() {
+    return Math.sqrt(x * x + y * y);
+  }
+
+  /** Squared length, see {@link TranslationMath#getNorm2(Translation2d)}. */
+  public double getNorm2() {
+    return x * x + y * y;
+  }
+
+  /**
+   * Scales the vector to {@code targetLength}; a zero vector stays zero. See
+   * {@link TranslationMath#scaleToLength(Translation2d, double)}.
+   */
+  public MutableTranslation2d scaleToLength(double targetLength) {
+    double norm = getNorm();
+    if (norm == 0) {
+      return set(0, 0);
+    }
+
+    return times(targetLength / norm);
+  }
+
+  /** A new immutable copy, for passing to WPILib. */
+  public Translation2d toTranslation2d() {
+    return new Translation2d(x, y);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MutableTranslation2d(X: %.2f, Y: %.2f)", x, y);
+  }
+}
@@ -14,10 +14,25 @@ public class TranslationMath {
   public static Translation2d scaleToLength(
       Translation2d vector,
       double targetLength) {
-    if (vector.getNorm() == 0) {
+    double norm = vector.getNorm();
+    if (norm == 0) {
       return new Translation2d(0, 0); // Avoid divide-by-zero
     }
 
-    return vector.div(vector.getNorm()).times(targetLength);
+    double scale = targetLength / norm;
+    return new Translation2d(vector.getX() * scale, vector.getY() * scale);
+  }
+
+  /**
+   * Like {@link #scaleToLength(Translation2d, double)}, but writes the result
+   * into {@code out} instead of allocating.
+   *
+   * @return {@code out}
+   */
+  public static MutableTranslation2d scaleToLength(
+      Translation2d vector,
+      double targetLength,
+      MutableTranslation2d out) {
+    return out.set(vector).scaleToLength(targetLength);
   }
 }
@@ -5,6 +5,7 @@ import edu.wpi.first.math.geometry.Rotation3d;
 import edu.wpi.first.math.geometry.Translation2d;
 import edu.wpi.first.math.geometry.Translation3d;
 import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import pwrup.frc.core.geometry.MutableRotation2d;
 
 public interface IGyroscopeLike {
 
@@ -25,4 +26,15 @@ public interface IGyroscopeLike {
   public default Rotation2d getRotation2d() {
     return getRotation().toRotation2d();
   }
+
+  /**
+   * Writes the yaw into {@code out} instead of allocating a {@link Rotation2d}.
+   * Implementations that read the yaw directly should override this to skip
+   * the {@link Rotation3d} as well.
+   *
+   * @return {@code out}
+   */
+  public default MutableRotation2d getRotation2d(MutableRotation2d out) {
+    return out.setRadians(getRotation().getZ());
+  }
 }
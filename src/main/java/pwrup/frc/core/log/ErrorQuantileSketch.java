@@ -0,0 +1,84 @@
+package pwrup.frc.core.log;
+
+import java.util.Arrays;
+
+import pwrup.frc.core.types.LogLinearBuckets;
+
+/**
+ * Fixed-size quantile sketch for non-negative errors.
+ *
+ * <p>
+ * Values are counted in units of {@value #RESOLUTION} in
+ * {@link LogLinearBuckets}, the same buckets as the publication histograms, so
+ * a quantile is accurate to within ~12% of its value (or to
+ * {@value #RESOLUTION}). Values above the last bucket are clamped into it.
+ * Sketches can be merged, which lets a time window be assembled from the
+ * sketches of its sub-windows. Nothing allocates after construction.
+ * </p>
+ */
+final class ErrorQuantileSketch {
+
+  /** Smallest distinguishable error, e.g. 0.1 mm or 0.1 mrad. */
+  static final double RESOLUTION = 1e-4;
+
+  /** 2^24 * RESOLUTION, about 1.6 km or rad; far beyond any real error. */
+  private static final int MAX_MAGNITUDE = 24;
+  private static final long MAX_UNITS = LogLinearBuckets.maxValue(MAX_MAGNITUDE);
+  private static final int BUCKET_COUNT = LogLinearBuckets.bucketCount(MAX_MAGNITUDE);
+
+  private final int[] counts = new int[BUCKET_COUNT];
+  private long count = 0;
+  private double max = 0.0;
+
+  void add(double value) {
+    long units = (long) Math.ceil(Math.abs(value) / RESOLUTION);
+    counts[LogLinearBuckets.indexOf(Math.min(MAX_UNITS, units))]++;
+    count++;
+    max = Math.max(max, Math.abs(value));
+  }
+
+  /** Adds every value recorded in {@code other}. */
+  void merge(ErrorQuantileSketch other) {
+    if (other.count == 0) {
+      return;
+    }
+
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] += other.counts[i];
+    }
+
+    count += other.count;
+    max = Math.max(max, other.max);
+  }
+
+  void clear() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    max = 0.0;
+  }
+
+  long getCount() {
+    return count;
+  }
+
+  /**
+   * The value at or below which {@code percentile} percent of the recorded
+   * values fall, or 0 if nothing was recorded.
+   */
+  double getValueAtPercentile(double percentile) {
+    if (count == 0) {
+      return 0.0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(max, LogLinearBuckets.highestValueInBucket(i) * RESOLUTION);
+      }
+    }
+
+    return max;
+  }
+}
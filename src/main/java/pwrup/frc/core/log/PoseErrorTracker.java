@@ -3,91 +3,196 @@ package pwrup.frc.core.log;
 import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.math.geometry.Translation2d;
-import java.util.ArrayList;
-import java.util.List;
-import pwrup.frc.core.geometry.TranslationMath;
 
+/**
+ * Tracks the last {@code max_num_samples} pose errors and their RMSE and
+ * maximum.
+ *
+ * <p>
+ * Samples are kept in parallel {@code double[]} ring buffers. The RMSE comes
+ * from running sums of squares, which are recomputed from the buffers every
+ * time the ring wraps so rounding errors cannot accumulate. The maxima come
+ * from monotonic deques of sample indices. Adding a sample and reading any
+ * statistic are O(1) amortized and do not allocate, apart from the returned
+ * {@link Translation2d} / {@link Rotation2d}.
+ * </p>
+ */
 public class PoseErrorTracker<S extends Pose2d> {
 
-  List<S> tracking_error_over_time_;
-  int max_num_samples_;
+  private final int max_num_samples_;
+
+  private final double[] x_;
+  private final double[] y_;
+  private final double[] theta_;
+  /** Squared translation error of each sample. */
+  private final double[] translation_sq_;
+
+  /** Index of the next sample, counting from the first sample ever added. */
+  private long next_index_ = 0;
+  private int size_ = 0;
+  private double translation_sq_sum_ = 0.0;
+  private double rotation_sq_sum_ = 0.0;
+
+  // Sample indices whose errors are decreasing from head to tail; the head is
+  // the maximum of the window.
+  private final long[] max_translation_deque_;
+  private int max_translation_head_ = 0;
+  private int max_translation_size_ = 0;
+  private final long[] max_rotation_deque_;
+  private int max_rotation_head_ = 0;
+  private int max_rotation_size_ = 0;
 
   public PoseErrorTracker(int max_num_samples) {
+    if (max_num_samples <= 0) {
+      throw new IllegalArgumentException("max_num_samples must be positive: " + max_num_samples);
+    }
+
     max_num_samples_ = max_num_samples;
-    tracking_error_over_time_ = new ArrayList<S>(max_num_samples);
+    x_ = new double[max_num_samples];
+    y_ = new double[max_num_samples];
+    theta_ = new double[max_num_samples];
+    translation_sq_ = new double[max_num_samples];
+    max_translation_deque_ = new long[max_num_samples];
+    max_rotation_deque_ = new long[max_num_samples];
   }
 
   public void addObservation(S error) {
-    if (tracking_error_over_time_.size() > max_num_samples_) {
-      tracking_error_over_time_.remove(0);
+    addObservation(error.getX(), error.getY(), error.getRotation().getRadians());
+  }
+
+  /** Adds an error given as its components, without needing a {@link Pose2d}. */
+  public void addObservation(double x, double y, double theta) {
+    int slot = (int) (next_index_ % max_num_samples_);
+    if (size_ == max_num_samples_) {
+      // evict the oldest sample, which lives in the slot about to be reused
+      long evicted = next_index_ - max_num_samples_;
+      translation_sq_sum_ -= translation_sq_[slot];
+      rotation_sq_sum_ -= theta_[slot] * theta_[slot];
+      if (max_translation_size_ > 0 && max_translation_deque_[max_translation_head_] == evicted) {
+        max_translation_head_ = (max_translation_head_ + 1) % max_num_samples_;
+        max_translation_size_--;
+      }
+
+      if (max_rotation_size_ > 0 && max_rotation_deque_[max_rotation_head_] == evicted) {
+        max_rotation_head_ = (max_rotation_head_ + 1) % max_num_samples_;
+        max_rotation_size_--;
+      }
+    } else {
+      size_++;
+    }
+
+    double translation_sq = x * x + y * y;
+    x_[slot] = x;
+    y_[slot] = y;
+    theta_[slot] = theta;
+    translation_sq_[slot] = translation_sq;
+    translation_sq_sum_ += translation_sq;
+    rotation_sq_sum_ += theta * theta;
+
+    // drop every queued sample that can no longer be the maximum
+    while (max_translation_size_ > 0
+        && translation_sq_[slotOf(max_translation_deque_[tail(max_translation_head_, max_translation_size_)])]
+            <= translation_sq) {
+      max_translation_size_--;
+    }
+    max_translation_deque_[(max_translation_head_ + max_translation_size_) % max_num_samples_] = next_index_;
+    max_translation_size_++;
+
+    double rotation_abs = Math.abs(theta);
+    while (max_rotation_size_ > 0
+        && Math.abs(theta_[slotOf(max_rotation_deque_[tail(max_rotation_head_, max_rotation_size_)])])
+            <= rotation_abs) {
+      max_rotation_size_--;
+    }
+    max_rotation_deque_[(max_rotation_head_ + max_rotation_size_) % max_num_samples_] = next_index_;
+    max_rotation_size_++;
+
+    next_index_++;
+    if (slot == max_num_samples_ - 1) {
+      recomputeSums();
     }
-    tracking_error_over_time_.add(error);
   }
 
   public void reset() {
-    tracking_error_over_time_.clear();
+    next_index_ = 0;
+    size_ = 0;
+    translation_sq_sum_ = 0.0;
+    rotation_sq_sum_ = 0.0;
+    max_translation_head_ = 0;
+    max_translation_size_ = 0;
+    max_rotation_head_ = 0;
+    max_rotation_size_ = 0;
+  }
+
+  public int getNumSamples() {
+    return size_;
   }
 
   public Translation2d getMaxTranslationError() {
-    if (tracking_error_over_time_.isEmpty()) return new Translation2d();
-    double max_norm = Double.NEGATIVE_INFINITY;
-    Translation2d max = null;
-    for (var error : tracking_error_over_time_) {
-      double norm = TranslationMath.getNorm2(error.getTranslation());
-      if (norm > max_norm) {
-        max_norm = norm;
-        max = error.getTranslation();
-      }
-    }
-    return max;
+    if (size_ == 0) return new Translation2d();
+    int slot = slotOf(max_translation_deque_[max_translation_head_]);
+    return new Translation2d(x_[slot], y_[slot]);
+  }
+
+  /** Length of the largest translation error, in meters. */
+  public double getMaxTranslationErrorNorm() {
+    if (size_ == 0) return 0.0;
+    return Math.sqrt(translation_sq_[slotOf(max_translation_deque_[max_translation_head_])]);
   }
 
   public Rotation2d getMaxRotationError() {
-    if (tracking_error_over_time_.isEmpty()) return new Rotation2d();
-    double max_norm = Double.NEGATIVE_INFINITY;
-    Rotation2d max = null;
-    for (var error : tracking_error_over_time_) {
-      double norm = Math.abs(error.getRotation().getRadians());
-      if (norm > max_norm) {
-        max_norm = norm;
-        max = error.getRotation();
-      }
-    }
+    if (size_ == 0) return new Rotation2d();
+    return new Rotation2d(getMaxRotationErrorRadians());
+  }
 
-    return max;
+  /** The rotation error with the largest magnitude, in radians. */
+  public double getMaxRotationErrorRadians() {
+    if (size_ == 0) return 0.0;
+    return theta_[slotOf(max_rotation_deque_[max_rotation_head_])];
   }
 
   public double getTranslationRMSE() {
-    double error_sum = 0.0;
-    for (var error : tracking_error_over_time_) {
-      error_sum += TranslationMath.getNorm2(error.getTranslation());
-    }
-    error_sum /= (double) tracking_error_over_time_.size();
-    return Math.sqrt(error_sum);
+    if (size_ == 0) return 0.0;
+    return Math.sqrt(Math.max(0.0, translation_sq_sum_) / size_);
   }
 
   public double getRotationRMSE() {
-    double error_sum = 0.0;
-    for (var error : tracking_error_over_time_) {
-      error_sum +=
-        error.getRotation().getRadians() * error.getRotation().getRadians();
-    }
-    error_sum /= (double) tracking_error_over_time_.size();
-    return Math.sqrt(error_sum);
+    if (size_ == 0) return 0.0;
+    return Math.sqrt(Math.max(0.0, rotation_sq_sum_) / size_);
   }
 
   @Override
   public String toString() {
-    if (tracking_error_over_time_.isEmpty()) return "";
+    if (size_ == 0) return "";
 
     return String.format(
       "Error Summary---%n" +
       "Translation: RMSE %.2f, Max: %.2f%n" +
       "Rotation: RMSE %.2f, Max: %.2f%n",
       getTranslationRMSE(),
-      getMaxTranslationError(),
+      getMaxTranslationErrorNorm(),
       getRotationRMSE(),
-      getMaxRotationError()
+      Math.abs(getMaxRotationErrorRadians())
     );
   }
+
+  private int slotOf(long index) {
+    return (int) (index % max_num_samples_);
+  }
+
+  private int tail(int head, int size) {
+    return (head + size - 1) % max_num_samples_;
+  }
+
+  private void recomputeSums() {
+    double translation_sq_sum = 0.0;
+    double rotation_sq_sum = 0.0;
+    for (int i = 0; i < size_; i++) {
+      translation_sq_sum += translation_sq_[i];
+      rotation_sq_sum += theta_[i] * theta_[i];
+    }
+
+    translation_sq_sum_ = translation_sq_sum;
+    rotation_sq_sum_ = rotation_sq_sum;
+  }
 }
@@ -0,0 +1,253 @@
+package pwrup.frc.core.log;
+
+import java.util.Optional;
+
+import edu.wpi.first.math.geometry.Pose2d;
+import edu.wpi.first.math.geometry.Rotation2d;
+import edu.wpi.first.math.geometry.Translation2d;
+import edu.wpi.first.math.kinematics.ChassisSpeeds;
+import pwrup.frc.core.geometry.MutableRotation2d;
+import pwrup.frc.core.hardware.sensor.IGyroscopeLike;
+
+/**
+ * Time-indexed history of the robot's pose and speeds, for fusing late
+ * measurements (e.g. vision frames that arrive 30-120 ms after capture)
+ * against the pose at capture time.
+ *
+ * <p>
+ * The newest {@code capacity} samples are kept in parallel primitive ring
+ * buffers. A lookup finds the surrounding samples by binary search and
+ * interpolates between them: poses along the constant-twist path on SE(2), the
+ * same curve as {@code Pose2d.interpolate}, so heading wraps correctly and
+ * position follows the arc the robot drove; speeds linearly. Timestamps
+ * outside the history clamp to the oldest or newest sample.
+ * </p>
+ *
+ * <p>
+ * Samples must be added with increasing timestamps; older ones are ignored.
+ * Not thread safe.
+ * </p>
+ */
+public class PoseHistory {
+
+  private final int capacity;
+  private final double[] timestamps;
+  private final double[] x;
+  private final double[] y;
+  private final double[] theta;
+  private final double[] vx;
+  private final double[] vy;
+  private final double[] omega;
+
+  /** Slot of the oldest sample. */
+  private int head = 0;
+  private int size = 0;
+
+  /** Reused by the lookups that return objects. */
+  private final double[] scratch = new double[6];
+  private final MutableRotation2d gyroRotation = new MutableRotation2d();
+
+  public PoseHistory(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.timestamps = new double[capacity];
+    this.x = new double[capacity];
+    this.y = new double[capacity];
+    this.theta = new double[capacity];
+    this.vx = new double[capacity];
+    this.vy = new double[capacity];
+    this.omega = new double[capacity];
+  }
+
+  /**
+   * Adds a sample.
+   *
+   * @return false if the sample was ignored because it is not newer than the
+   *         newest sample
+   */
+  public boolean addSample(double timestampSeconds, Pose2d pose, ChassisSpeeds speeds) {
+    return addSample(timestampSeconds, pose.getX(), pose.getY(), pose.getRotation().getRadians(),
+        speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+  }
+
+  /**
+   * Adds a sample taking heading and speeds straight from {@code gyro}.
+   */
+  public boolean addSample(double timestampSeconds, Translation2d position, IGyroscopeLike gyro) {
+    var speeds = gyro.getVelocity();
+    double heading = gyro.getRotation2d(gyroRotation).getRadians();
+    return addSample(timestampSeconds, position.getX(), position.getY(), heading,
+        speeds.vxMetersPerSecond, speeds.vyMetersPerSecond, speeds.omegaRadiansPerSecond);
+  }
+
+  /** Adds a sample given as its components; does not allocate. */
+  public boolean addSample(double timestampSeconds, double xMeters, double yMeters, double thetaRadians,
+      double vxMetersPerSecond, double vyMetersPerSecond, double omegaRadiansPerSecond) {
+    if (size > 0 && timestampSeconds <= timestamps[slot(size - 1)]) {
+      return false;
+    }
+
+    int slot;
+    if (size < capacity) {
+      slot = slot(size);
+      size++;
+    } else {
+      slot = head;
+      head = (head + 1) % capacity;
+    }
+
+    timestamps[slot] = timestampSeconds;
+    x[slot] = xMeters;
+    y[slot] = yMeters;
+    theta[slot] = thetaRadians;
+    vx[slot] = vxMetersPerSecond;
+    vy[slot] = vyMetersPerSecond;
+    omega[slot] = omegaRadiansPerSecond;
+    return true;
+  }
+
+  public void clear() {
+    head = 0;
+    size = 0;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /** Timestamp of the oldest sample, or {@code NaN} if empty. */
+  public double getOldestTimestamp() {
+    return size == 0 ? Double.NaN : timestamps[head];
+  }
+
+  /** Timestamp of the newest sample, or {@code NaN} if empty. */
+  public double getNewestTimestamp() {
+    return size == 0 ? Double.NaN : timestamps[slot(size - 1)];
+  }
+
+  /** The pose at {@code timestampSeconds}, or empty if there are no samples. */
+  public Optional<Pose2d> getPose(double timestampSeconds) {
+    if (!sample(timestampSeconds, scratch)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new Pose2d(scratch[0], scratch[1], new Rotation2d(scratch[2])));
+  }
+
+  /** The speeds at {@code timestampSeconds}, or empty if there are no samples. */
+  public Optional<ChassisSpeeds> getSpeeds(double timestampSeconds) {
+    if (!sample(timestampSeconds, scratch)) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new ChassisSpeeds(scratch[3], scratch[4], scratch[5]));
+  }
+
+  /**
+   * Writes the interpolated state at {@code timestampSeconds} into {@code out}
+   * as {@code x, y, theta, vx, vy, omega}, without allocating.
+   *
+   * @param out array of at least 6 elements
+   * @return false, leaving {@code out} untouched, if there are no samples
+   */
+  public boolean sample(double timestampSeconds, double[] out) {
+    if (size == 0) {
+      return false;
+    }
+
+    int upper = firstAtOrAfter(timestampSeconds);
+    if (upper == 0 || upper == size) {
+      copy(slot(upper == 0 ? 0 : size - 1), out);
+      return true;
+    }
+
+    int a = slot(upper - 1);
+    int b = slot(upper);
+    double s = (timestampSeconds - timestamps[a]) / (timestamps[b] - timestamps[a]);
+    interpolatePose(a, b, s, out);
+    out[3] = vx[a] + (vx[b] - vx[a]) * s;
+    out[4] = vy[a] + (vy[b] - vy[a]) * s;
+    out[5] = omega[a] + (omega[b] - omega[a]) * s;
+    return true;
+  }
+
+  /** Logical index (0 = oldest) of the first sample not older than {@code t}, or {@code size}. */
+  private int firstAtOrAfter(double t) {
+    int lo = 0;
+    int hi = size;
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (timestamps[slot(mid)] < t) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+
+    return lo;
+  }
+
+  /**
+   * Moves a fraction {@code s} of the way from pose {@code a} to pose {@code b}
+   * along the constant twist between them: log of the relative pose, scaled,
+   * then exp.
+   */
+  private void interpolatePose(int a, int b, double s, double[] out) {
+    double cosA = Math.cos(theta[a]);
+    double sinA = Math.sin(theta[a]);
+
+    // b relative to a
+    double dxWorld = x[b] - x[a];
+    double dyWorld = y[b] - y[a];
+    double dx = cosA * dxWorld + sinA * dyWorld;
+    double dy = -sinA * dxWorld + cosA * dyWorld;
+    double dTheta = Math.IEEEremainder(theta[b] - theta[a], 2 * Math.PI);
+
+    // log
+    double halfDTheta = dTheta / 2;
+    double halfThetaByTanOfHalfDTheta = Math.abs(dTheta) < 1e-9
+        ? 1.0 - dTheta * dTheta / 12.0
+        : halfDTheta * Math.sin(dTheta) / (1.0 - Math.cos(dTheta));
+    double twistX = (halfThetaByTanOfHalfDTheta * dx + halfDTheta * dy) * s;
+    double twistY = (-halfDTheta * dx + halfThetaByTanOfHalfDTheta * dy) * s;
+    double twistTheta = dTheta * s;
+
+    // exp
+    double sinThetaByTheta;
+    double oneMinusCosByTheta;
+    if (Math.abs(twistTheta) < 1e-9) {
+      sinThetaByTheta = 1.0 - twistTheta * twistTheta / 6.0;
+      oneMinusCosByTheta = 0.5 * twistTheta;
+    } else {
+      sinThetaByTheta = Math.sin(twistTheta) / twistTheta;
+      oneMinusCosByTheta = (1.0 - Math.cos(twistTheta)) / twistTheta;
+    }
+
+    double stepX = twistX * sinThetaByTheta - twistY * oneMinusCosByTheta;
+    double stepY = twistX * oneMinusCosByTheta + twistY * sinThetaByTheta;
+
+    out[0] = x[a] + cosA * stepX - sinA * stepY;
+    out[1] = y[a] + sinA * stepX + cosA * stepY;
+    out[2] = theta[a] + twistTheta;
+  }
+
+  private void copy(int slot, double[] out) {
+    out[0] = x[slot];
+    out[1] = y[slot];
+    out[2] = theta[slot];
+    out[3] = vx[slot];
+    out[4] = vy[slot];
+    out[5] = omega[slot];
+  }
+
+  private int slot(int index) {
+    return (head + index) % capacity;
+  }
+}
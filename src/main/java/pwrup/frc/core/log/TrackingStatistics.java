@@ -0,0 +1,276 @@
+package pwrup.frc.core.log;
+
+import core4765.proto.tracking.TrackingStatisticsOuterClass;
+import core4765.proto.tracking.TrackingStatisticsOuterClass.ErrorWindowSummary;
+import edu.wpi.first.math.geometry.Pose2d;
+import pwrup.frc.core.proto.IDataClass;
+
+/**
+ * Path tracking error statistics over several time windows at once.
+ *
+ * <p>
+ * For the last second, the last ten seconds and the whole run (e.g. one
+ * autonomous period, see {@link #reset()}) it keeps the RMSE, maximum and
+ * p50/p90/p99 of the translation and heading error. The sliding windows are
+ * split into {@value #BUCKETS_PER_WINDOW} time buckets, each with its own sums
+ * and {@link ErrorQuantileSketch}es. A window is the merge of its buckets that
+ * are still current, so it slides in steps of a tenth of its length. Memory is
+ * fixed and does not depend on the sample rate.
+ * </p>
+ *
+ * <p>
+ * Timestamps are supplied by the caller in seconds, e.g. from
+ * {@code Timer.getFPGATimestamp()}; the newest timestamp is taken as "now".
+ * Not thread safe.
+ * </p>
+ */
+public class TrackingStatistics {
+
+  public enum Window {
+    LAST_1S,
+    LAST_10S,
+    RUN,
+  }
+
+  private static final int BUCKETS_PER_WINDOW = 10;
+
+  /** Sums and sketches of the samples in one stretch of time. */
+  private static final class Bucket {
+    private long epoch = Long.MIN_VALUE;
+    private long count = 0;
+    private double translationSqSum = 0.0;
+    private double rotationSqSum = 0.0;
+    private final ErrorQuantileSketch translation = new ErrorQuantileSketch();
+    private final ErrorQuantileSketch rotation = new ErrorQuantileSketch();
+
+    void add(double translationError, double rotationError) {
+      count++;
+      translationSqSum += translationError * translationError;
+      rotationSqSum += rotationError * rotationError;
+      translation.add(translationError);
+      rotation.add(rotationError);
+    }
+
+    void merge(Bucket other) {
+      count += other.count;
+      translationSqSum += other.translationSqSum;
+      rotationSqSum += other.rotationSqSum;
+      translation.merge(other.translation);
+      rotation.merge(other.rotation);
+    }
+
+    void clear(long epoch) {
+      this.epoch = epoch;
+      count = 0;
+      translationSqSum = 0.0;
+      rotationSqSum = 0.0;
+      translation.clear();
+      rotation.clear();
+    }
+  }
+
+  /** A window sliding over time in {@link #BUCKETS_PER_WINDOW} steps. */
+  private static final class SlidingWindow {
+    private final double bucketSeconds;
+    private final Bucket[] buckets = new Bucket[BUCKETS_PER_WINDOW];
+    private long latestEpoch = Long.MIN_VALUE;
+
+    SlidingWindow(double lengthSeconds) {
+      this.bucketSeconds = lengthSeconds / BUCKETS_PER_WINDOW;
+      for (int i = 0; i < buckets.length; i++) {
+        buckets[i] = new Bucket();
+      }
+    }
+
+    /**
+     * Adds a sample to the bucket of its time. A late sample that is already
+     * older than the window is dropped, as its slot belongs to a live bucket.
+     */
+    void add(double timestampSeconds, double translationError, double rotationError) {
+      long epoch = epochOf(timestampSeconds);
+      if (latestEpoch != Long.MIN_VALUE && epoch <= latestEpoch - buckets.length) {
+        return;
+      }
+
+      var bucket = buckets[(int) Math.floorMod(epoch, (long) buckets.length)];
+      if (bucket.epoch > epoch) {
+        // never wipe a newer bucket
+        return;
+      }
+
+      if (bucket.epoch != epoch) {
+        bucket.clear(epoch);
+      }
+
+      bucket.add(translationError, rotationError);
+      latestEpoch = Math.max(latestEpoch, epoch);
+    }
+
+    void collect(double nowSeconds, Bucket into) {
+      long current = epochOf(nowSeconds);
+      for (var bucket : buckets) {
+        if (bucket.epoch <= current && bucket.epoch > current - buckets.length) {
+          into.merge(bucket);
+        }
+      }
+    }
+
+    void clear() {
+      latestEpoch = Long.MIN_VALUE;
+      for (var bucket : buckets) {
+        bucket.clear(Long.MIN_VALUE);
+      }
+    }
+
+    private long epochOf(double timestampSeconds) {
+      return (long) Math.floor(timestampSeconds / bucketSeconds);
+    }
+  }
+
+  private final SlidingWindow last1s = new SlidingWindow(1.0);
+  private final SlidingWindow last10s = new SlidingWindow(10.0);
+  private final Bucket run = new Bucket();
+
+  /** Merged results per window, recomputed when samples were added. */
+  private final Bucket[] summaries = new Bucket[Window.values().length];
+  private final long[] summarizedAtSample = new long[Window.values().length];
+  private long samples = 0;
+  private double latestTimestampSeconds = Double.NEGATIVE_INFINITY;
+
+  public TrackingStatistics() {
+    for (int i = 0; i < summaries.length; i++) {
+      summaries[i] = new Bucket();
+      summarizedAtSample[i] = -1;
+    }
+  }
+
+  /** Adds the tracking error observed at {@code timestampSeconds}. */
+  public void addObservation(double timestampSeconds, Pose2d error) {
+    addObservation(timestampSeconds, error.getX(), error.getY(), error.getRotation().getRadians());
+  }
+
+  /** Adds the tracking error observed at {@code timestampSeconds}. */
+  public void addObservation(double timestampSeconds, double x, double y, double theta) {
+    double translationError = Math.hypot(x, y);
+    double rotationError = Math.abs(theta);
+    last1s.add(timestampSeconds, translationError, rotationError);
+    last10s.add(timestampSeconds, translationError, rotationError);
+    run.add(translationError, rotationError);
+
+    latestTimestampSeconds = Math.max(latestTimestampSeconds, timestampSeconds);
+    samples++;
+  }
+
+  /** Clears every window, e.g. at the start of autonomous. */
+  public void reset() {
+    last1s.clear();
+    last10s.clear();
+    run.clear(Long.MIN_VALUE);
+    latestTimestampSeconds = Double.NEGATIVE_INFINITY;
+    samples = 0;
+    for (int i = 0; i < summarizedAtSample.length; i++) {
+      summarizedAtSample[i] = -1;
+    }
+  }
+
+  public long getCount(Window window) {
+    return summary(window).count;
+  }
+
+  /** Root mean square translation error, in meters. */
+  public double getTranslationRMSE(Window window) {
+    var summary = summary(window);
+    return summary.count == 0 ? 0.0 : Math.sqrt(summary.translationSqSum / summary.count);
+  }
+
+  /** Root mean square heading error, in radians. */
+  public double getRotationRMSE(Window window) {
+    var summary = summary(window);
+    return summary.count == 0 ? 0.0 : Math.sqrt(summary.rotationSqSum / summary.count);
+  }
+
+  public double getMaxTranslationError(Window window) {
+    return summary(window).translation.getValueAtPercentile(100);
+  }
+
+  public double getMaxRotationError(Window window) {
+    return summary(window).rotation.getValueAtPercentile(100);
+  }
+
+  /** Translation error at {@code percentile} (0 to 100), in meters. */
+  public double getTranslationPercentile(Window window, double percentile) {
+    return summary(window).translation.getValueAtPercentile(percentile);
+  }
+
+  /** Heading error magnitude at {@code percentile} (0 to 100), in radians. */
+  public double getRotationPercentile(Window window, double percentile) {
+    return summary(window).rotation.getValueAtPercentile(percentile);
+  }
+
+  /** Serialized {@code TrackingStatistics} proto of all windows. */
+  public byte[] summarize() {
+    return TrackingStatisticsOuterClass.TrackingStatistics
+        .newBuilder()
+        .setLast1S(summarize(Window.LAST_1S))
+        .setLast10S(summarize(Window.LAST_10S))
+        .setRun(summarize(Window.RUN))
+        .build()
+        .toByteArray();
+  }
+
+  /** Publishes {@link #summarize()} on {@code topic}, e.g. through a PublicationSubsystem. */
+  public IDataClass asDataClass(String topic) {
+    return new IDataClass() {
+      @Override
+      public byte[] getRawConstructedProtoData() {
+        return summarize();
+      }
+
+      @Override
+      public String getPublishTopic() {
+        return topic;
+      }
+    };
+  }
+
+  private ErrorWindowSummary summarize(Window window) {
+    return ErrorWindowSummary
+        .newBuilder()
+        .setCount(getCount(window))
+        .setTranslationRmse(getTranslationRMSE(window))
+        .setTranslationMax(getMaxTranslationError(window))
+        .setTranslationP50(getTranslationPercentile(window, 50))
+        .setTranslationP90(getTranslationPercentile(window, 90))
+        .setTranslationP99(getTranslationPercentile(window, 99))
+        .setRotationRmse(getRotationRMSE(window))
+        .setRotationMax(getMaxRotationError(window))
+        .setRotationP50(getRotationPercentile(window, 50))
+        .setRotationP90(getRotationPercentile(window, 90))
+        .setRotationP99(getRotationPercentile(window, 99))
+        .build();
+  }
+
+  private Bucket summary(Window window) {
+    int i = window.ordinal();
+    var summary = summaries[i];
+    if (summarizedAtSample[i] == samples) {
+      return summary;
+    }
+
+    summary.clear(Long.MIN_VALUE);
+    switch (window) {
+      case LAST_1S:
+        last1s.collect(latestTimestampSeconds, summary);
+        break;
+      case LAST_10S:
+        last10s.collect(latestTimestampSeconds, summary);
+        break;
+      case RUN:
+        summary.merge(run);
+        break;
+    }
+
+    summarizedAtSample[i] = samples;
+    return summary;
+  }
+}
@@ -0,0 +1,244 @@
+package pwrup.frc.core.online;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import autobahn.client.AutobahnClient;
+
+/**
+ * Latest-value-wins publish queue with one single-slot mailbox per topic.
+ *
+ * <p>
+ * Offering a payload for a topic that is still waiting to be sent replaces the
+ * waiting payload instead of queueing another one, so the backlog never holds
+ * more than one message per topic and the newest value of every topic is
+ * always the one that goes out. Topics are sent in the order they first became
+ * pending by a single daemon sender thread. The sender does not wait for a
+ * publish to complete, but keeps at most {@value #MAX_IN_FLIGHT} publishes in
+ * flight and pauses while that many are outstanding.
+ * </p>
+ *
+ * <p>
+ * In batch mode the sender instead waits for {@link #endPass()} and sends every
+ * pending topic together in one {@link PublicationBatch} frame on the batch
+ * topic.
+ * </p>
+ *
+ * <p>
+ * Payload arrays are returned to the {@link PublishBufferPool} once their
+ * publish has completed, successfully or not, or once they were replaced, so
+ * callers should take them from the same pool.
+ * </p>
+ */
+final class CoalescingPublishQueue {
+
+  private static final long PUBLISH_TIMEOUT_MS = 1000L;
+  private static final int MAX_IN_FLIGHT = 8;
+
+  private final Supplier<AutobahnClient> client;
+  private final PublishBufferPool bufferPool;
+  private final ConcurrentHashMap<String, byte[]> latestByTopic = new ConcurrentHashMap<>();
+  private final LinkedBlockingQueue<String> pendingTopics = new LinkedBlockingQueue<>();
+
+  /** Batch topic, or {@code null} when every topic is sent on its own. */
+  private volatile String batchTopic = null;
+  private final Semaphore passesEnded = new Semaphore(0);
+  private final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+  /** Only touched by the sender thread. */
+  private final PublicationBatch batch = new PublicationBatch();
+  private final List<String> batchedTopics = new ArrayList<>();
+  private final List<byte[]> batchedPayloads = new ArrayList<>();
+
+  private final AtomicLong sent = new AtomicLong();
+  private final AtomicLong coalesced = new AtomicLong();
+  private final AtomicLong failed = new AtomicLong();
+  /** Per-topic metrics, or {@code null} while metrics are disabled. */
+  private volatile PublicationStats stats = null;
+
+  CoalescingPublishQueue(Supplier<AutobahnClient> client, PublishBufferPool bufferPool, String threadName) {
+    this.client = client;
+    this.bufferPool = bufferPool;
+    var sender = new Thread(this::drain, threadName);
+    sender.setDaemon(true);
+    sender.start();
+  }
+
+  /**
+   * Stores {@code payload} as the latest value for {@code topic}. Never blocks.
+   */
+  void offer(String topic, byte[] payload) {
+    byte[] replaced = latestByTopic.put(topic, payload);
+    if (replaced == null) {
+      pendingTopics.offer(topic);
+    } else {
+      coalesced.incrementAndGet();
+      bufferPool.release(topic, replaced);
+      var currentStats = stats;
+      if (currentStats != null) {
+        currentStats.topic(topic).coalesced.incrementAndGet();
+      }
+    }
+  }
+
+  void setStats(PublicationStats stats) {
+    this.stats = stats;
+  }
+
+  /**
+   * Switches batch mode on or off.
+   *
+   * @param batchTopic topic the batch frames are published on, or {@code null}
+   *                   to send every topic as its own frame
+   */
+  void setBatchTopic(String batchTopic) {
+    this.batchTopic = batchTopic;
+    // wake a sender that may be waiting for the end of a pass
+    passesEnded.release();
+  }
+
+  /**
+   * Marks the end of a publish pass. In batch mode everything offered so far is
+   * sent as one frame; otherwise this does nothing.
+   */
+  void endPass() {
+    if (batchTopic != null) {
+      passesEnded.release();
+    }
+  }
+
+  /** Number of topics currently waiting to be sent. */
+  int depth() {
+    return latestByTopic.size();
+  }
+
+  /** Payloads that were replaced by a newer value before they were sent. */
+  long getCoalescedCount() {
+    return coalesced.get();
+  }
+
+  long getSentCount() {
+    return sent.get();
+  }
+
+  /** Publishes that completed exceptionally or did not complete in time. */
+  long getFailedCount() {
+    return failed.get();
+  }
+
+  private void drain() {
+    while (!Thread.currentThread().isInterrupted()) {
+      try {
+        String currentBatchTopic = batchTopic;
+        if (currentBatchTopic == null) {
+          sendSingle(pendingTopics.take());
+        } else {
+          passesEnded.acquire();
+          passesEnded.drainPermits();
+          sendBatch(currentBatchTopic);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * Waits for a free publish slot before taking the topic's payload out of its
+   * mailbox, so a value offered while the sender waits still replaces it.
+   */
+  private void sendSingle(String topic) throws InterruptedException {
+    inFlight.acquire();
+    byte[] payload = latestByTopic.remove(topic);
+    if (payload == null) {
+      inFlight.release();
+      return;
+    }
+
+    send(topic, payload);
+  }
+
+  private void sendBatch(String topic) throws InterruptedException {
+    inFlight.acquire();
+    batchedTopics.clear();
+    batchedPayloads.clear();
+    pendingTopics.drainTo(batchedTopics);
+    batch.clear();
+    for (int i = 0; i < batchedTopics.size(); i++) {
+      byte[] payload = latestByTopic.remove(batchedTopics.get(i));
+      batchedPayloads.add(payload);
+      if (payload != null) {
+        batch.add(batchedTopics.get(i), payload);
+      }
+    }
+
+    if (batch.isEmpty()) {
+      inFlight.release();
+      return;
+    }
+
+    byte[] frame = bufferPool.acquire(topic, batch.encodedSize());
+    batch.writeTo(frame);
+    // entries were copied into the frame, so their arrays can be reused
+    for (int i = 0; i < batchedTopics.size(); i++) {
+      if (batchedPayloads.get(i) != null) {
+        bufferPool.release(batchedTopics.get(i), batchedPayloads.get(i));
+      }
+    }
+
+    send(topic, frame);
+  }
+
+  /**
+   * Publishes {@code payload} in a publish slot the caller has already taken,
+   * without waiting for it to complete. A publish that has not completed after
+   * {@value #PUBLISH_TIMEOUT_MS} ms counts as failed and frees its slot, but
+   * its array is only released once the client is done with it.
+   */
+  private void send(String topic, byte[] payload) {
+    var currentStats = stats;
+    var topicStats = currentStats == null ? null : currentStats.topic(topic);
+    long start = System.nanoTime();
+
+    CompletableFuture<Void> publish;
+    try {
+      publish = client.get().publish(topic, payload);
+    } catch (RuntimeException e) {
+      inFlight.release();
+      recordFailure(topicStats);
+      bufferPool.release(topic, payload);
+      return;
+    }
+
+    publish.whenComplete((result, error) -> bufferPool.release(topic, payload));
+    publish.copy()
+        .orTimeout(PUBLISH_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+        .whenComplete((result, error) -> {
+          inFlight.release();
+          if (error != null) {
+            recordFailure(topicStats);
+            return;
+          }
+
+          sent.incrementAndGet();
+          if (topicStats != null) {
+            topicStats.publishLatencyNanos.record(System.nanoTime() - start);
+            topicStats.sent.incrementAndGet();
+          }
+        });
+  }
+
+  private void recordFailure(PublicationStats.TopicStats topicStats) {
+    failed.incrementAndGet();
+    if (topicStats != null) {
+      topicStats.failed.incrementAndGet();
+    }
+  }
+}
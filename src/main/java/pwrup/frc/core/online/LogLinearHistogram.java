@@ -0,0 +1,89 @@
+package pwrup.frc.core.online;
+
+import java.util.Arrays;
+
+import core4765.proto.publication.PublicationMetricsOuterClass.HistogramSummary;
+import pwrup.frc.core.types.LogLinearBuckets;
+
+/**
+ * Fixed-size histogram of non-negative {@code long} values in the style of
+ * HdrHistogram: every power of two is split into
+ * {@value LogLinearBuckets#SUB_BUCKETS} linear buckets, so percentiles are accurate to within ~12% of the value while the
+ * memory footprint stays constant. Values above 2^{@value #MAX_MAGNITUDE} are
+ * clamped into the last bucket.
+ *
+ * <p>
+ * Recording never allocates. Methods are synchronized because values are
+ * recorded from both the robot thread and the publish sender.
+ * </p>
+ */
+final class LogLinearHistogram {
+
+  private static final int MAX_MAGNITUDE = 40;
+  private static final long MAX_VALUE = LogLinearBuckets.maxValue(MAX_MAGNITUDE);
+  private static final int BUCKET_COUNT = LogLinearBuckets.bucketCount(MAX_MAGNITUDE);
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long count = 0;
+  private long sum = 0;
+  private long min = Long.MAX_VALUE;
+  private long max = 0;
+
+  synchronized void record(long value) {
+    value = Math.max(0, Math.min(MAX_VALUE, value));
+    counts[LogLinearBuckets.indexOf(value)]++;
+    count++;
+    sum += value;
+    min = Math.min(min, value);
+    max = Math.max(max, value);
+  }
+
+  synchronized long getCount() {
+    return count;
+  }
+
+  /**
+   * Returns the value at or below which {@code percentile} percent of the
+   * recorded values fall, or 0 if nothing was recorded.
+   */
+  synchronized long getValueAtPercentile(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(max, LogLinearBuckets.highestValueInBucket(i));
+      }
+    }
+
+    return max;
+  }
+
+  /** Summarizes the recorded values and then clears the histogram. */
+  synchronized HistogramSummary summarizeAndReset() {
+    var summary = HistogramSummary
+        .newBuilder()
+        .setCount(count)
+        .setMin(count == 0 ? 0 : min)
+        .setMax(max)
+        .setMean(count == 0 ? 0.0 : (double) sum / count)
+        .setP50(getValueAtPercentile(50))
+        .setP90(getValueAtPercentile(90))
+        .setP99(getValueAtPercentile(99))
+        .build();
+    reset();
+    return summary;
+  }
+
+  synchronized void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    sum = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+}
@@ -0,0 +1,184 @@
+package pwrup.frc.core.online;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import autobahn.client.NamedCallback;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Envelope that carries several topic payloads in a single websocket frame.
+ *
+ * <p>
+ * Frame layout (big-endian):
+ * </p>
+ *
+ * <pre>
+ * byte    version (currently 1)
+ * int32   entry count
+ * repeated:
+ *   int16   topic length, followed by the UTF-8 topic
+ *   int32   payload length, followed by the payload
+ * </pre>
+ *
+ * <p>
+ * Publishers fill an instance with {@link #add(String, byte[])} and send
+ * {@link #toByteArray()}. Subscribers unpack frames with
+ * {@link #decode(byte[], BiConsumer)} or subscribe with one of the
+ * {@code unbatching} callbacks, e.g.
+ * {@code client.subscribe(batchTopic, PublicationBatch.unbatching(handlers))}.
+ * </p>
+ *
+ * <p>
+ * Instances are not thread safe.
+ * </p>
+ */
+public final class PublicationBatch {
+
+  public static final byte VERSION = 1;
+
+  private static final int HEADER_BYTES = Byte.BYTES + Integer.BYTES;
+  private static final int ENTRY_OVERHEAD_BYTES = Short.BYTES + Integer.BYTES;
+
+  private final List<byte[]> topics = new ArrayList<>();
+  private final List<byte[]> payloads = new ArrayList<>();
+  /** Encoded topic names; topics are reused every loop so they are cached. */
+  private final Map<String, byte[]> encodedTopics = new HashMap<>();
+  private int encodedSize = HEADER_BYTES;
+
+  public void add(String topic, byte[] payload) {
+    byte[] encodedTopic = encodedTopics.computeIfAbsent(topic, t -> t.getBytes(StandardCharsets.UTF_8));
+    if (encodedTopic.length > Short.MAX_VALUE) {
+      throw new IllegalArgumentException("Topic name too long for a batch frame: " + topic);
+    }
+
+    topics.add(encodedTopic);
+    payloads.add(payload);
+    encodedSize += ENTRY_OVERHEAD_BYTES + encodedTopic.length + payload.length;
+  }
+
+  public int size() {
+    return topics.size();
+  }
+
+  public boolean isEmpty() {
+    return topics.isEmpty();
+  }
+
+  public void clear() {
+    topics.clear();
+    payloads.clear();
+    encodedSize = HEADER_BYTES;
+  }
+
+  /** Size in bytes of the frame {@link #toByteArray()} would produce. */
+  public int encodedSize() {
+    return encodedSize;
+  }
+
+  /** Encodes every entry added since the last {@link #clear()} into one frame. */
+  public byte[] toByteArray() {
+    byte[] frame = new byte[encodedSize];
+    writeTo(frame);
+    return frame;
+  }
+
+  /**
+   * Encodes every entry added since the last {@link #clear()} into
+   * {@code frame}, which must be at least {@link #encodedSize()} bytes long.
+   */
+  public void writeTo(byte[] frame) {
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    buffer.put(VERSION);
+    buffer.putInt(topics.size());
+    for (int i = 0; i < topics.size(); i++) {
+      byte[] topic = topics.get(i);
+      byte[] payload = payloads.get(i);
+      buffer.putShort((short) topic.length);
+      buffer.put(topic);
+      buffer.putInt(payload.length);
+      buffer.put(payload);
+    }
+  }
+
+  /**
+   * Unpacks a batch frame, handing every contained topic and payload to
+   * {@code consumer} in the order they were added. The whole frame is checked
+   * before the first entry is handed over, so a malformed frame delivers
+   * nothing.
+   *
+   * @throws IllegalArgumentException if the frame is malformed or of an
+   *                                  unsupported version
+   */
+  public static void decode(byte[] frame, BiConsumer<String, byte[]> consumer) {
+    ByteBuffer buffer = ByteBuffer.wrap(frame);
+    try {
+      byte version = buffer.get();
+      if (version != VERSION) {
+        throw new IllegalArgumentException("Unsupported batch frame version: " + version);
+      }
+
+      int count = buffer.getInt();
+      int entriesStart = buffer.position();
+      for (int i = 0; i < count; i++) {
+        skip(buffer, buffer.getShort());
+        skip(buffer, buffer.getInt());
+      }
+
+      buffer.position(entriesStart);
+      for (int i = 0; i < count; i++) {
+        byte[] topic = new byte[buffer.getShort()];
+        buffer.get(topic);
+        byte[] payload = new byte[buffer.getInt()];
+        buffer.get(payload);
+        consumer.accept(new String(topic, StandardCharsets.UTF_8), payload);
+      }
+    } catch (BufferUnderflowException e) {
+      throw new IllegalArgumentException("Malformed batch frame", e);
+    }
+  }
+
+  private static void skip(ByteBuffer buffer, int length) {
+    if (length < 0 || length > buffer.remaining()) {
+      throw new BufferUnderflowException();
+    }
+
+    buffer.position(buffer.position() + length);
+  }
+
+  /**
+   * Creates a subscription callback that unpacks batch frames and hands every
+   * contained topic and payload to {@code consumer}. Malformed frames are
+   * reported to the driver station and dropped.
+   */
+  public static NamedCallback unbatching(BiConsumer<String, byte[]> consumer) {
+    return NamedCallback.FromConsumer((byte[] frame) -> {
+      try {
+        decode(frame, consumer);
+      } catch (IllegalArgumentException e) {
+        DriverStation.reportWarning("Dropping batch frame: " + e.getMessage(), false);
+      }
+    });
+  }
+
+  /**
+   * Creates a subscription callback that unpacks batch frames and routes each
+   * payload to the handler registered for its topic. Topics without a handler
+   * are ignored.
+   */
+  public static NamedCallback unbatching(Map<String, Consumer<byte[]>> handlersByTopic) {
+    return unbatching((topic, payload) -> {
+      var handler = handlersByTopic.get(topic);
+      if (handler != null) {
+        handler.accept(payload);
+      }
+    });
+  }
+}
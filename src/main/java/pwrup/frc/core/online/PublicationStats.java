@@ -0,0 +1,88 @@
+package pwrup.frc.core.online;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import core4765.proto.publication.PublicationMetricsOuterClass.PublicationMetrics;
+import core4765.proto.publication.PublicationMetricsOuterClass.TopicMetrics;
+import pwrup.frc.core.proto.IDataClass;
+
+/**
+ * Publish-path metrics collected by {@link PublicationSubsystem} and its
+ * publish queue while metrics are enabled.
+ *
+ * <p>
+ * Histograms are interval histograms: each time the summary is published they
+ * are reported and cleared. Counters are cumulative.
+ * </p>
+ */
+final class PublicationStats {
+
+  static final class TopicStats {
+    final LogLinearHistogram serializationNanos = new LogLinearHistogram();
+    final LogLinearHistogram payloadBytes = new LogLinearHistogram();
+    final LogLinearHistogram publishLatencyNanos = new LogLinearHistogram();
+
+    final AtomicLong offered = new AtomicLong();
+    final AtomicLong sent = new AtomicLong();
+    final AtomicLong coalesced = new AtomicLong();
+    final AtomicLong failed = new AtomicLong();
+    final AtomicLong deferred = new AtomicLong();
+    final AtomicLong unchanged = new AtomicLong();
+  }
+
+  private final ConcurrentHashMap<String, TopicStats> byTopic = new ConcurrentHashMap<>();
+
+  final LogLinearHistogram queueDepth = new LogLinearHistogram();
+  final LogLinearHistogram loopNanos = new LogLinearHistogram();
+  final AtomicLong budgetOverruns = new AtomicLong();
+
+  TopicStats topic(String topic) {
+    return byTopic.computeIfAbsent(topic, t -> new TopicStats());
+  }
+
+  byte[] summarizeAndReset() {
+    var metrics = PublicationMetrics.newBuilder();
+    byTopic.forEach((topic, stats) -> metrics.addTopics(TopicMetrics
+        .newBuilder()
+        .setTopic(topic)
+        .setSerializationNanos(stats.serializationNanos.summarizeAndReset())
+        .setPayloadBytes(stats.payloadBytes.summarizeAndReset())
+        .setPublishLatencyNanos(stats.publishLatencyNanos.summarizeAndReset())
+        .setOffered(stats.offered.get())
+        .setSent(stats.sent.get())
+        .setCoalesced(stats.coalesced.get())
+        .setFailed(stats.failed.get())
+        .setDeferred(stats.deferred.get())
+        .setUnchanged(stats.unchanged.get())
+        .build()));
+
+    return metrics
+        .setQueueDepth(queueDepth.summarizeAndReset())
+        .setLoopNanos(loopNanos.summarizeAndReset())
+        .setBudgetOverruns(budgetOverruns.get())
+        .build()
+        .toByteArray();
+  }
+
+  /** Publishes the metrics summary like any other data class. */
+  static final class MetricsDataClass implements IDataClass {
+    private final PublicationStats stats;
+    private final String topic;
+
+    MetricsDataClass(PublicationStats stats, String topic) {
+      this.stats = stats;
+      this.topic = topic;
+    }
+
+    @Override
+    public byte[] getRawConstructedProtoData() {
+      return stats.summarizeAndReset();
+    }
+
+    @Override
+    public String getPublishTopic() {
+      return topic;
+    }
+  }
+}
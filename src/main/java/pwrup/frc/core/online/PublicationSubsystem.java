@@ -1,11 +1,13 @@
 package pwrup.frc.core.online;
 
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.PriorityQueue;
 
 import autobahn.client.AutobahnClient;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
@@ -13,25 +15,51 @@ import pwrup.frc.core.proto.IDataClass;
 
 public class PublicationSubsystem extends SubsystemBase {
 
-  private final Map<String, IDataClass> dataClasses;
+  /**
+   * Registered data classes keyed by their publish topic, so several instances
+   * of one class (e.g. anonymous data classes) can coexist; registering another
+   * data class on the same topic replaces the previous one.
+   */
+  private final Map<String, ScheduledTopic> dataClasses;
   private static PublicationSubsystem self;
   private static AutobahnClient client;
 
   /**
-   * Executor for offloading publish calls off the main robot thread. Uses a
-   * bounded
-   * queue to avoid unbounded growth when websocket is slow; drops oldest when
-   * full.
+   * Registered topics ordered by when they are next due. Topics registered
+   * without a rate are due every loop.
+   */
+  private final PriorityQueue<ScheduledTopic> schedule = new PriorityQueue<>(ScheduledTopic.BY_DUE_TIME);
+  /** Reused every loop to hold the topics that are due, in priority order. */
+  private final List<ScheduledTopic> dueThisLoop = new ArrayList<>();
+  private long registrationCounter = 0L;
+
+  private boolean deltaPublishing = false;
+  private long keepAliveNanos = 0L;
+
+  /** Publish-path metrics, or {@code null} while metrics are disabled. */
+  private PublicationStats stats = null;
+  /** Topic of the registered metrics data class, or {@code null} while metrics are disabled. */
+  private String metricsTopic = null;
+  private long loopBudgetNanos = 0L;
+  private int deferBelowPriority = Integer.MIN_VALUE;
+
+  /**
+   * Offloads publish calls from the main robot thread. Holds at most one
+   * pending payload per topic; a newer payload for a topic replaces the one
+   * still waiting, so a stalled websocket can never starve a topic of its
+   * latest value.
+   */
+  private static final PublishBufferPool bufferPool = new PublishBufferPool();
+  private static final CoalescingPublishQueue publishQueue = new CoalescingPublishQueue(
+      () -> PublicationSubsystem.client, bufferPool, "PublicationSubsystem-publish");
+
+  private static final int INITIAL_SERIALIZATION_BUFFER_BYTES = 4096;
+
+  /**
+   * Every data class serializes into this buffer; it only grows, so after the
+   * first few loops serialization itself does not allocate.
    */
-  private static final ThreadPoolExecutor publishExecutor = new ThreadPoolExecutor(
-      4, 4, 0L, TimeUnit.MILLISECONDS,
-      new LinkedBlockingQueue<>(64),
-      r -> {
-        var t = new Thread(r, "PublicationSubsystem-publish");
-        t.setDaemon(true);
-        return t;
-      },
-      new ThreadPoolExecutor.DiscardOldestPolicy());
+  private ByteBuffer serializationBuffer = ByteBuffer.allocate(INITIAL_SERIALIZATION_BUFFER_BYTES);
 
   public static PublicationSubsystem GetInstance(AutobahnClient client, IDataClass... dataClasses) {
     if (self == null) {
@@ -49,30 +77,249 @@ public class PublicationSubsystem extends SubsystemBase {
     PublicationSubsystem.client = client;
     this.dataClasses = new LinkedHashMap<>();
     for (var dataClass : dataClasses) {
-      this.dataClasses.put(dataClass.getClass().getName(), dataClass);
+      register(dataClass, 0, 0);
     }
   }
 
   public static void addDataClass(IDataClass dataClass) {
-    GetInstance(PublicationSubsystem.client).dataClasses.put(dataClass.getClass().getName(), dataClass);
+    GetInstance(PublicationSubsystem.client).register(dataClass, 0, 0);
+  }
+
+  /**
+   * Registers a data class that is published at its own rate instead of every
+   * loop.
+   *
+   * <p>
+   * The effective rate is capped by how often {@link #periodic()} runs. When
+   * several topics are due in the same loop, higher priorities are published
+   * first.
+   * </p>
+   *
+   * @param dataClass the data class to publish
+   * @param rateHz    publish rate in Hz. Values {@code <= 0} publish every loop.
+   * @param priority  publish priority; higher goes first
+   */
+  public static void addDataClass(IDataClass dataClass, double rateHz, int priority) {
+    GetInstance(PublicationSubsystem.client).register(dataClass, rateHz, priority);
   }
 
   public static void addDataClasses(IDataClass... dataClasses) {
     var instance = GetInstance(PublicationSubsystem.client);
     Arrays.stream(dataClasses)
-        .forEach(dataClass -> instance.dataClasses.put(dataClass.getClass().getName(), dataClass));
+        .forEach(dataClass -> instance.register(dataClass, 0, 0));
+  }
+
+  private void register(IDataClass dataClass, double rateHz, int priority) {
+    var scheduled = new ScheduledTopic(dataClass, rateHz, priority, registrationCounter++, System.nanoTime());
+    var previous = dataClasses.put(dataClass.getPublishTopic(), scheduled);
+    if (previous != null) {
+      schedule.remove(previous);
+    }
+
+    schedule.add(scheduled);
+  }
+
+  /**
+   * Enables delta publishing. A topic is then only published again when its
+   * payload bytes differ from the last payload sent on it, or when
+   * {@code keepAliveSeconds} have passed since it was last sent so subscribers
+   * still see a heartbeat.
+   *
+   * @param keepAliveSeconds maximum time between two publishes of an unchanged
+   *                         topic. Values {@code <= 0} publish unchanged topics
+   *                         every time they are due.
+   */
+  public static void enableDeltaPublishing(double keepAliveSeconds) {
+    var instance = GetInstance(PublicationSubsystem.client);
+    instance.keepAliveNanos = (long) (keepAliveSeconds * 1e9);
+    instance.deltaPublishing = true;
+  }
+
+  /**
+   * Disables delta publishing; every registered data class is published each
+   * time it is due again.
+   */
+  public static void disableDeltaPublishing() {
+    var instance = GetInstance(PublicationSubsystem.client);
+    instance.deltaPublishing = false;
+    for (var scheduled : instance.dataClasses.values()) {
+      scheduled.lastPayload = null;
+    }
+  }
+
+  /**
+   * Enables batch mode. Every payload produced in one {@link #periodic()} pass
+   * is sent together as a single {@link PublicationBatch} frame on
+   * {@code batchTopic} instead of one frame per topic. Subscribers unpack the
+   * frames with {@link PublicationBatch#unbatching}.
+   *
+   * @param batchTopic the topic batch frames are published on
+   */
+  public static void enableBatching(String batchTopic) {
+    publishQueue.setBatchTopic(batchTopic);
+  }
+
+  /** Disables batch mode; every topic is published as its own frame again. */
+  public static void disableBatching() {
+    publishQueue.setBatchTopic(null);
+  }
+
+  /**
+   * Enables publish-path metrics: per-topic serialization time, payload size,
+   * publish latency and drop counters, plus publish queue depth and time spent
+   * in {@link #periodic()}. A summary is published as a
+   * {@code PublicationMetrics} proto on {@code metricsTopic} at
+   * {@code rateHz}, with the lowest priority.
+   *
+   * @param metricsTopic the topic the summary is published on
+   * @param rateHz       how often the summary is published
+   */
+  public static void enableMetrics(String metricsTopic, double rateHz) {
+    var instance = GetInstance(PublicationSubsystem.client);
+    instance.stats = new PublicationStats();
+    publishQueue.setStats(instance.stats);
+    instance.metricsTopic = metricsTopic;
+    instance.register(new PublicationStats.MetricsDataClass(instance.stats, metricsTopic), rateHz, Integer.MIN_VALUE);
+  }
+
+  public static void disableMetrics() {
+    var instance = GetInstance(PublicationSubsystem.client);
+    if (instance.metricsTopic != null) {
+      var previous = instance.dataClasses.remove(instance.metricsTopic);
+      if (previous != null) {
+        instance.schedule.remove(previous);
+      }
+
+      instance.metricsTopic = null;
+    }
+
+    instance.stats = null;
+    publishQueue.setStats(null);
+  }
+
+  /**
+   * Limits how long {@link #periodic()} may spend serializing topics. Once the
+   * budget is used up, remaining due topics with a priority below
+   * {@code deferBelowPriority} are deferred to the next loop; topics at or
+   * above it are always published.
+   *
+   * @param budgetSeconds      time budget per loop. Values {@code <= 0} disable
+   *                           the budget.
+   * @param deferBelowPriority topics below this priority may be deferred
+   */
+  public static void setLoopBudget(double budgetSeconds, int deferBelowPriority) {
+    var instance = GetInstance(PublicationSubsystem.client);
+    instance.loopBudgetNanos = (long) (budgetSeconds * 1e9);
+    instance.deferBelowPriority = deferBelowPriority;
   }
 
   @Override
   public void periodic() {
-    for (var dataClass : dataClasses.values()) {
-      final byte[] data = dataClass.getRawConstructedProtoData();
-      final String topic = dataClass.getPublishTopic();
-      publishExecutor.execute(() -> PublicationSubsystem.client.publish(topic, data));
+    final long now = System.nanoTime();
+    boolean overBudget = false;
+
+    dueThisLoop.clear();
+    while (!schedule.isEmpty() && schedule.peek().isDue(now)) {
+      dueThisLoop.add(schedule.poll());
+    }
+    dueThisLoop.sort(ScheduledTopic.BY_PRIORITY);
+
+    for (var scheduled : dueThisLoop) {
+      if (loopBudgetNanos > 0
+          && scheduled.priority < deferBelowPriority
+          && System.nanoTime() - now > loopBudgetNanos) {
+        // still due, so it is picked up again next loop
+        overBudget = true;
+        schedule.add(scheduled);
+        if (stats != null) {
+          stats.topic(scheduled.dataClass.getPublishTopic()).deferred.incrementAndGet();
+        }
+        continue;
+      }
+
+      scheduled.reschedule(now);
+      schedule.add(scheduled);
+
+      long serializeStart = System.nanoTime();
+      int length = serialize(scheduled.dataClass);
+      long serializeNanos = System.nanoTime() - serializeStart;
+
+      String topic = scheduled.dataClass.getPublishTopic();
+      var topicStats = stats == null ? null : stats.topic(topic);
+      if (topicStats != null) {
+        topicStats.serializationNanos.record(serializeNanos);
+        topicStats.payloadBytes.record(length);
+      }
+
+      if (deltaPublishing && !hasChangedOrExpired(scheduled, length, now)) {
+        if (topicStats != null) {
+          topicStats.unchanged.incrementAndGet();
+        }
+        continue;
+      }
+
+      byte[] data = bufferPool.acquire(topic, length);
+      System.arraycopy(serializationBuffer.array(), 0, data, 0, length);
+      publishQueue.offer(topic, data);
+      if (topicStats != null) {
+        topicStats.offered.incrementAndGet();
+      }
+    }
+
+    publishQueue.endPass();
+
+    if (stats != null) {
+      stats.queueDepth.record(publishQueue.depth());
+      stats.loopNanos.record(System.nanoTime() - now);
+      if (overBudget) {
+        stats.budgetOverruns.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Serializes {@code dataClass} into the start of the serialization buffer,
+   * growing the buffer if it is too small.
+   *
+   * @return the number of bytes written
+   */
+  private int serialize(IDataClass dataClass) {
+    while (true) {
+      serializationBuffer.clear();
+      try {
+        return dataClass.writeRawConstructedProtoData(serializationBuffer);
+      } catch (BufferOverflowException e) {
+        serializationBuffer = ByteBuffer.allocate(serializationBuffer.capacity() * 2);
+      }
     }
   }
 
+  /**
+   * Returns whether the first {@code length} bytes of the serialization buffer
+   * should be published for {@code scheduled} and, if so, records them as the
+   * last published payload.
+   */
+  private boolean hasChangedOrExpired(ScheduledTopic scheduled, int length, long now) {
+    byte[] data = serializationBuffer.array();
+    if (scheduled.lastPayload != null
+        && Arrays.equals(scheduled.lastPayload, 0, scheduled.lastPayloadLength, data, 0, length)
+        && now - scheduled.lastPublishedNanos < keepAliveNanos) {
+      return false;
+    }
+
+    if (scheduled.lastPayload == null || scheduled.lastPayload.length < length) {
+      scheduled.lastPayload = new byte[length];
+    }
+
+    System.arraycopy(data, 0, scheduled.lastPayload, 0, length);
+    scheduled.lastPayloadLength = length;
+    scheduled.lastPublishedNanos = now;
+    return true;
+  }
+
   public static void ClearAll() {
-    GetInstance(PublicationSubsystem.client).dataClasses.clear();
+    var instance = GetInstance(PublicationSubsystem.client);
+    instance.dataClasses.clear();
+    instance.schedule.clear();
   }
 }
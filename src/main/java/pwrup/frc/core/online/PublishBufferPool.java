@@ -0,0 +1,77 @@
+package pwrup.frc.core.online;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recycles the payload arrays handed to the publish queue, keyed by topic.
+ *
+ * <p>
+ * Autobahn's publish API takes the whole {@code byte[]} as the payload, so a
+ * pooled array must have exactly the payload's length; an array with spare
+ * capacity cannot be used. Each topic therefore keeps its last few released
+ * arrays and hands out one whose length matches. A topic whose payload length
+ * stays the same from loop to loop, or alternates between a few lengths, does
+ * not allocate once its arrays are circulating. A payload of a new length
+ * allocates a new array, which then takes a spare's place when released.
+ * </p>
+ *
+ * <p>
+ * Only the payload arrays are pooled; offering a payload to the publish queue
+ * still allocates a small queue node.
+ * </p>
+ */
+final class PublishBufferPool {
+
+  /** Robot thread, mailbox and publishes in flight each hold arrays of a topic. */
+  private static final int SPARES_PER_TOPIC = 4;
+
+  /** The released arrays of one topic. Guarded by its own monitor. */
+  private static final class Spares {
+    private final byte[][] arrays = new byte[SPARES_PER_TOPIC][];
+    /** Slot overwritten next when every slot is taken, in round robin. */
+    private int next = 0;
+  }
+
+  private final ConcurrentHashMap<String, Spares> sparesByTopic = new ConcurrentHashMap<>();
+
+  /** Returns an array of exactly {@code length} bytes for {@code topic}. */
+  byte[] acquire(String topic, int length) {
+    var spares = sparesByTopic.get(topic);
+    if (spares != null) {
+      synchronized (spares) {
+        for (int i = 0; i < SPARES_PER_TOPIC; i++) {
+          byte[] spare = spares.arrays[i];
+          if (spare != null && spare.length == length) {
+            spares.arrays[i] = null;
+            return spare;
+          }
+        }
+      }
+    }
+
+    return new byte[length];
+  }
+
+  /**
+   * Returns an array to the pool once nothing reads it anymore. If all spares
+   * of the topic are taken, one of them is left to the garbage collector.
+   */
+  void release(String topic, byte[] payload) {
+    var spares = sparesByTopic.computeIfAbsent(topic, t -> new Spares());
+    synchronized (spares) {
+      for (int i = 0; i < SPARES_PER_TOPIC; i++) {
+        if (spares.arrays[i] == null) {
+          spares.arrays[i] = payload;
+          return;
+        }
+      }
+
+      spares.arrays[spares.next] = payload;
+      spares.next = (spares.next + 1) % SPARES_PER_TOPIC;
+    }
+  }
+
+  void clear() {
+    sparesByTopic.clear();
+  }
+}
@@ -0,0 +1,73 @@
+package pwrup.frc.core.online;
+
+import java.util.Comparator;
+
+import pwrup.frc.core.proto.IDataClass;
+
+/**
+ * Publish schedule and bookkeeping for a single {@link IDataClass} registered
+ * with {@link PublicationSubsystem}.
+ */
+final class ScheduledTopic {
+
+  /** Orders topics by when they are next due; used by the schedule heap. */
+  static final Comparator<ScheduledTopic> BY_DUE_TIME = Comparator
+      .comparingLong((ScheduledTopic t) -> t.nextDueNanos)
+      .thenComparing(Comparator.comparingInt((ScheduledTopic t) -> t.priority).reversed())
+      .thenComparingLong(t -> t.registrationOrder);
+
+  /** Orders topics that are due in the same loop, highest priority first. */
+  static final Comparator<ScheduledTopic> BY_PRIORITY = Comparator
+      .comparingInt((ScheduledTopic t) -> t.priority).reversed()
+      .thenComparingLong(t -> t.registrationOrder);
+
+  final IDataClass dataClass;
+  final long periodNanos;
+  final int priority;
+  final long registrationOrder;
+
+  long nextDueNanos;
+
+  /**
+   * Copy of the last payload sent, only maintained while delta publishing is
+   * enabled. Reused across loops; only the first {@link #lastPayloadLength}
+   * bytes are valid.
+   */
+  byte[] lastPayload;
+  int lastPayloadLength;
+  long lastPublishedNanos;
+
+  /**
+   * @param dataClass         the data class to publish
+   * @param rateHz            publish rate. Values {@code <= 0} publish every
+   *                          loop.
+   * @param priority          higher values are published first when several
+   *                          topics are due in the same loop
+   * @param registrationOrder tie breaker so equal priorities keep registration
+   *                          order
+   * @param nowNanos          current time; the topic is due immediately
+   */
+  ScheduledTopic(IDataClass dataClass, double rateHz, int priority, long registrationOrder, long nowNanos) {
+    this.dataClass = dataClass;
+    this.periodNanos = rateHz > 0 ? (long) (1e9 / rateHz) : 0L;
+    this.priority = priority;
+    this.registrationOrder = registrationOrder;
+    this.nextDueNanos = nowNanos;
+  }
+
+  boolean isDue(long nowNanos) {
+    return nextDueNanos <= nowNanos;
+  }
+
+  /**
+   * Moves the due time forward by one period. If the topic fell more than a
+   * period behind it is rescheduled relative to {@code nowNanos} instead of
+   * bursting to catch up.
+   */
+  void reschedule(long nowNanos) {
+    nextDueNanos += periodNanos;
+    if (nextDueNanos <= nowNanos) {
+      nextDueNanos = nowNanos + periodNanos;
+    }
+  }
+}
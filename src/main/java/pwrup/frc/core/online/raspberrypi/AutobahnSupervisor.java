@@ -0,0 +1,186 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+import autobahn.client.Address;
+import autobahn.client.AutobahnClient;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Watches the connection of an {@link OptionalAutobahn} and reconnects it when
+ * it drops.
+ *
+ * <p>
+ * While the connection is down, the supervisor tries the candidate addresses
+ * in turn, starting with the last one that worked, so a dead Pi fails over to
+ * the next Pi's Autobahn server. Failed attempts back off exponentially with
+ * jitter up to a maximum delay. Once a new client is connected it is handed to
+ * {@link OptionalAutobahn#setAutobahnClient(AutobahnClient, long)}, which
+ * re-establishes the subscription state, bounded by the connect timeout, and
+ * flushes buffered publishes. The client it replaces is closed.
+ * </p>
+ *
+ * <p>
+ * All work happens on a single daemon thread; nothing blocks the robot thread.
+ * </p>
+ */
+public class AutobahnSupervisor {
+
+  private static final long DEFAULT_CHECK_INTERVAL_MS = 250;
+  private static final long DEFAULT_INITIAL_BACKOFF_MS = 250;
+  private static final long DEFAULT_MAX_BACKOFF_MS = 8000;
+  private static final long DEFAULT_CONNECT_TIMEOUT_MS = 2000;
+
+  private final OptionalAutobahn autobahn;
+  private final Supplier<List<? extends Address>> candidates;
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    var t = new Thread(r, "AutobahnSupervisor");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private long checkIntervalMs = DEFAULT_CHECK_INTERVAL_MS;
+  private long initialBackoffMs = DEFAULT_INITIAL_BACKOFF_MS;
+  private long maxBackoffMs = DEFAULT_MAX_BACKOFF_MS;
+  private long connectTimeoutMs = DEFAULT_CONNECT_TIMEOUT_MS;
+
+  private ScheduledFuture<?> task = null;
+  private int failedAttempts = 0;
+  private long nextAttemptNanos = 0;
+  private int candidateIndex = 0;
+  private volatile Address connectedAddress = null;
+
+  /**
+   * @param autobahn   the client to supervise
+   * @param candidates Autobahn addresses to connect to, in order of preference
+   */
+  public AutobahnSupervisor(OptionalAutobahn autobahn, List<? extends Address> candidates) {
+    this(autobahn, () -> candidates);
+  }
+
+  /**
+   * Supervises {@code autobahn} using the Pis of {@code network} as candidates.
+   * The network is read on every attempt, so Pis added later are picked up.
+   */
+  public AutobahnSupervisor(OptionalAutobahn autobahn, PiNetwork<?> network) {
+    this(autobahn, () -> new ArrayList<>(network.getPis()));
+  }
+
+  private AutobahnSupervisor(OptionalAutobahn autobahn, Supplier<List<? extends Address>> candidates) {
+    this.autobahn = autobahn;
+    this.candidates = candidates;
+  }
+
+  /**
+   * Sets the reconnect timing. Must be called before {@link #start()}.
+   *
+   * @param checkIntervalMs  how often the connection is checked
+   * @param initialBackoffMs delay after the first failed attempt; doubles with
+   *                         every further failure
+   * @param maxBackoffMs     upper bound for the delay between attempts
+   * @param connectTimeoutMs how long a single connection attempt may take
+   */
+  public AutobahnSupervisor withTiming(long checkIntervalMs, long initialBackoffMs, long maxBackoffMs,
+      long connectTimeoutMs) {
+    this.checkIntervalMs = checkIntervalMs;
+    this.initialBackoffMs = initialBackoffMs;
+    this.maxBackoffMs = maxBackoffMs;
+    this.connectTimeoutMs = connectTimeoutMs;
+    return this;
+  }
+
+  public synchronized void start() {
+    if (task == null) {
+      task = executor.scheduleWithFixedDelay(this::check, 0, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public synchronized void stop() {
+    if (task != null) {
+      task.cancel(false);
+      task = null;
+    }
+  }
+
+  /** The address of the current connection, or {@code null} if never connected. */
+  public Address getConnectedAddress() {
+    return connectedAddress;
+  }
+
+  private void check() {
+    if (autobahn.isConnected()) {
+      failedAttempts = 0;
+      return;
+    }
+
+    if (System.nanoTime() < nextAttemptNanos) {
+      return;
+    }
+
+    List<? extends Address> addresses = candidates.get();
+    if (addresses.isEmpty()) {
+      return;
+    }
+
+    Address address = addresses.get(candidateIndex % addresses.size());
+    AutobahnClient client = null;
+    try {
+      client = new AutobahnClient(address);
+      client.begin().get(connectTimeoutMs, TimeUnit.MILLISECONDS);
+
+      var replaced = autobahn.getReal();
+      // only swaps the client in once its subscriptions are in place
+      autobahn.setAutobahnClient(client, connectTimeoutMs);
+      client = null;
+      replaced.ifPresent(AutobahnSupervisor::closeQuietly);
+
+      connectedAddress = address;
+      failedAttempts = 0;
+      DriverStation.reportWarning("Autobahn connected to " + address.getHost() + ":" + address.getPort(), false);
+    } catch (InterruptedException e) {
+      closeQuietly(client);
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException | TimeoutException | RuntimeException e) {
+      // a client that was never installed may still be connecting in the
+      // background
+      closeQuietly(client);
+      failedAttempts++;
+      // fail over to the next candidate for the next attempt
+      candidateIndex = (candidateIndex + 1) % addresses.size();
+      nextAttemptNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(nextBackoffMs());
+      DriverStation.reportWarning(
+          "Autobahn connection to " + address.getHost() + ":" + address.getPort() + " failed (attempt "
+              + failedAttempts + ")",
+          false);
+    }
+  }
+
+  private static void closeQuietly(AutobahnClient client) {
+    if (client == null) {
+      return;
+    }
+
+    try {
+      client.close();
+    } catch (RuntimeException e) {
+      // the client is being discarded anyway
+    }
+  }
+
+  /** Exponential backoff with "equal jitter": half fixed, half random. */
+  private long nextBackoffMs() {
+    int exponent = Math.min(failedAttempts - 1, 30);
+    long backoff = Math.min(maxBackoffMs, initialBackoffMs << exponent);
+    long half = backoff / 2;
+    return half + ThreadLocalRandom.current().nextLong(half + 1);
+  }
+}
@@ -1,21 +1,34 @@
 package pwrup.frc.core.online.raspberrypi;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Optional;
 
+import edu.wpi.first.wpilibj.DriverStation;
 import pwrup.frc.core.constant.RaspberryPiConstants;
+import pwrup.frc.core.online.raspberrypi.discovery.PiDiscoveryCache;
+import pwrup.frc.core.online.raspberrypi.discovery.PiDiscoveryService;
 import pwrup.frc.core.online.raspberrypi.discovery.PiDiscoveryUtil;
 import pwrup.frc.core.online.raspberrypi.discovery.PiInfo;
+import pwrup.frc.core.online.raspberrypi.placement.PlacementEngine;
+import pwrup.frc.core.online.raspberrypi.placement.PlacementStrategy;
 
 public class AutomaticPiNetwork<P extends Enum<P> & Comparable<P> & WeightedProcess> extends PiNetwork<P> {
   private static final List<ConstrainedProcess<?>> constrainedProcesses = new ArrayList<>();
+  /** Cached Pis not seen for longer than this are not trusted for a warm start. */
+  private static final Duration CACHE_MAX_AGE = Duration.ofDays(7);
   private final int timeoutSeconds;
   private final List<P> processesToRun;
   private final int portAutobahn;
   private final int portComs;
+  private int expectedPiCount = 0;
+  private volatile PiDiscoveryService discoveryService = null;
+  private PiDiscoveryCache discoveryCache = null;
+  private PlacementEngine<P> placementEngine = new PlacementEngine<>(PlacementStrategy.GREEDY);
 
   @SafeVarargs
   public AutomaticPiNetwork(int timeoutSeconds, int portAutobahn, int portComs, P... processesToRun) {
@@ -31,24 +44,77 @@ public class AutomaticPiNetwork<P extends Enum<P> & Comparable<P> & WeightedProc
         processesToRun);
   }
 
+  /**
+   * Sets how many Pis the robot expects. When set, {@link #initialize()} uses a
+   * {@link PiDiscoveryService} and returns as soon as that many Pis have been
+   * found instead of always waiting the full timeout. The service keeps running
+   * afterwards, see {@link #getDiscoveryService()}.
+   */
+  public AutomaticPiNetwork<P> withExpectedPiCount(int expectedPiCount) {
+    this.expectedPiCount = expectedPiCount;
+    return this;
+  }
+
+  /**
+   * Sets how unconstrained processes are spread over the Pis. Defaults to
+   * {@link PlacementStrategy#GREEDY} without capacity limits. Constrained
+   * processes always go on the Pis they are constrained to.
+   */
+  public AutomaticPiNetwork<P> withPlacement(PlacementEngine<P> placementEngine) {
+    this.placementEngine = placementEngine;
+    return this;
+  }
+
+  /**
+   * Warm-starts from the discovery cache at {@code cacheFile}. If the cache
+   * holds Pis, {@link #initialize()} connects to them right away and runs mDNS
+   * discovery only in the background, correcting the cache for the next boot.
+   * If it holds fewer than the expected Pi count, discovery runs as usual and
+   * its result is merged with the cached Pis. Otherwise discovery runs as usual
+   * and its result is written to the cache.
+   *
+   * @see RaspberryPiConstants#DEFAULT_DISCOVERY_CACHE_PATH
+   */
+  public AutomaticPiNetwork<P> withDiscoveryCache(Path cacheFile) {
+    this.discoveryCache = new PiDiscoveryCache(cacheFile);
+    return this;
+  }
+
+  /**
+   * The discovery service started by {@link #initialize()}, if an expected Pi
+   * count was set. Add a listener to it to hear about Pis that appear or go
+   * away later.
+   */
+  public Optional<PiDiscoveryService> getDiscoveryService() {
+    return Optional.ofNullable(discoveryService);
+  }
+
   public void initialize() {
     try {
-      var allInfos = PiDiscoveryUtil.discover(timeoutSeconds);
-      for (PiInfo piInfo : allInfos) {
-        var systemName = piInfo.getName();
-        var processesOnPi = new ArrayList<P>();
-        for (ConstrainedProcess<?> constrainedProcess : constrainedProcesses) {
-          if (systemName != null && constrainedProcess.getPisToRunOn().contains(systemName)) {
-            processesOnPi.add((P) constrainedProcess.getProcessToRun());
-          }
+      List<PiInfo> allInfos;
+      List<PiInfo> cachedInfos = discoveryCache != null ? discoveryCache.load(CACHE_MAX_AGE) : List.of();
+      boolean warmStart = !cachedInfos.isEmpty() && cachedInfos.size() >= expectedPiCount;
+      if (warmStart) {
+        allInfos = cachedInfos;
+        validateCacheInBackground(cachedInfos);
+      } else if (expectedPiCount > 0) {
+        if (!cachedInfos.isEmpty()) {
+          DriverStation.reportWarning("Discovery cache holds " + cachedInfos.size() + " of " + expectedPiCount
+              + " expected Pis; discovering the rest", false);
         }
 
-        var pi = new RaspberryPi<P>(piInfo.getHostnameLocal(), piInfo.getAutobahnPort().orElse(portAutobahn),
-            piInfo.getWatchdogPort().orElse(portComs));
-        for (P process : processesOnPi) {
-          pi.addProcess(process);
-        }
-        add(pi);
+        allInfos = merge(cachedInfos, awaitExpectedPis());
+      } else {
+        allInfos = PiDiscoveryUtil.discover(timeoutSeconds);
+      }
+
+      if (discoveryCache != null && !warmStart) {
+        discoveryCache.updateAll(allInfos);
+        discoveryCache.save();
+      }
+
+      for (PiInfo piInfo : allInfos) {
+        addDiscoveredPi(piInfo);
       }
     } catch (IOException e) {
       throw new RuntimeException("Failed to discover Pis", e);
@@ -56,88 +122,128 @@ public class AutomaticPiNetwork<P extends Enum<P> & Comparable<P> & WeightedProc
       throw new RuntimeException("Failed to discover Pis", e);
     }
 
+    var unconstrained = new ArrayList<P>();
     for (P process : processesToRun) {
       // Skip processes that are explicitly constrained (already assigned above)
       boolean isConstrained = constrainedProcesses
           .stream()
           .anyMatch(cp -> ((ConstrainedProcess<P>) cp).equalsToProcess(process));
-      if (isConstrained) {
-        continue;
+      if (!isConstrained) {
+        unconstrained.add(process);
       }
-
-      var targetPi = getPiForProcess(process);
-      targetPi.addProcess(process);
     }
+
+    placementEngine.apply(getPis(), unconstrained);
   }
 
-  private HashMap<RaspberryPi<P>, Double> splitAssignedWeightByPi() {
-    var weightByPi = new HashMap<RaspberryPi<P>, Double>();
-    for (var pi : getPis()) {
-      double sum = pi.getProcessesToRun().stream().mapToDouble(WeightedProcess::getWeight).sum();
-      // include optional base weight if used
-      sum += pi.getWeight();
-      weightByPi.put(pi, sum);
+  private List<PiInfo> awaitExpectedPis() throws IOException, InterruptedException {
+    if (discoveryService == null) {
+      discoveryService = PiDiscoveryService.start();
+      invalidateConfigsOnRediscovery(discoveryService);
+    }
+
+    var found = discoveryService.awaitPis(expectedPiCount, Duration.ofSeconds(timeoutSeconds));
+    if (found.size() < expectedPiCount) {
+      DriverStation.reportWarning("Found " + found.size() + " of " + expectedPiCount + " expected Pis within "
+          + timeoutSeconds + " s", false);
     }
-    return weightByPi;
+
+    return found;
   }
 
   /**
-   * Splits Raspberry Pis by their assigned total process weight.
-   * 
-   * <p>
-   * Aggregates the weights of all processes (via
-   * {@link WeightedProcess#getWeight()})
-   * mapped to each {@link RaspberryPi} and returns a mapping of Pi to its total
-   * assigned weight.
-   * </p>
-   *
-   * @return a map from RaspberryPi to the sum of weights of its assigned
-   *         processes
+   * A Pi that advertises itself again has most likely rebooted and lost its
+   * config, so the next config push must not be skipped.
    */
-  // Alias kept for clarity; used by getPiForProcess to consider current loads
-  private HashMap<RaspberryPi<P>, Double> splitPisByWeight() {
-    return splitAssignedWeightByPi();
+  private void invalidateConfigsOnRediscovery(PiDiscoveryService service) {
+    service.addListener(pi -> {
+      if (pi.getName() != null) {
+        invalidateConfigCache(pi.getName());
+      }
+    });
   }
 
-  /**
-   * Resolves which Raspberry Pi should run the given process.
-   * 
-   */
-  private RaspberryPi<P> getPiForProcess(P process) {
-    var weightByPi = splitAssignedWeightByPi();
-
-    // Determine eligible Pis based on constraints (if any)
-    List<RaspberryPi<P>> candidates = getPis();
-    var maybeConstraint = constrainedProcesses
-        .stream()
-        .filter(cp -> ((ConstrainedProcess<P>) cp).equalsToProcess(process))
-        .findFirst();
-    if (maybeConstraint.isPresent()) {
-      var allowed = ((ConstrainedProcess<P>) maybeConstraint.get()).getPisToRunOn();
-      candidates = candidates
+  /** Cached Pis plus the discovered ones; a discovered Pi replaces its cached entry. */
+  private static List<PiInfo> merge(List<PiInfo> cached, List<PiInfo> discovered) {
+    var merged = new ArrayList<>(discovered);
+    for (PiInfo pi : cached) {
+      boolean rediscovered = discovered
           .stream()
-          .filter(pi -> allowed.contains(pi.getHost()))
-          .toList();
-      if (candidates.isEmpty()) {
-        throw new IllegalStateException("No eligible Pis found for constrained process: " + process);
+          .anyMatch(found -> pi.getName().equals(found.getName()));
+      if (!rediscovered) {
+        merged.add(pi);
       }
     }
 
-    // Choose the Pi with the least total assigned weight (ties: first)
-    RaspberryPi<P> best = null;
-    double bestWeight = Double.POSITIVE_INFINITY;
-    for (var pi : candidates) {
-      double w = weightByPi.getOrDefault(pi, 0.0);
-      if (w < bestWeight) {
-        bestWeight = w;
-        best = pi;
+    return merged;
+  }
+
+  /**
+   * Starts mDNS discovery off the robot thread and keeps the cache in line with
+   * what it finds. Pis already in use keep their cached address for this run; a
+   * changed address takes effect on the next {@link #initialize()}. Cached Pis
+   * that are not seen within the discovery timeout are dropped from the cache.
+   */
+  private void validateCacheInBackground(List<PiInfo> cachedInfos) {
+    var thread = new Thread(() -> {
+      try {
+        if (discoveryService == null) {
+          var service = PiDiscoveryService.start();
+          invalidateConfigsOnRediscovery(service);
+          discoveryService = service;
+        }
+      } catch (IOException e) {
+        DriverStation.reportWarning("Background Pi discovery failed to start: " + e.getMessage(), false);
+        return;
+      }
+
+      discoveryService.addListener(pi -> {
+        if (discoveryCache.update(pi)) {
+          DriverStation.reportWarning(
+              "Pi " + pi.getName() + " differs from the discovery cache; cache updated: " + pi, false);
+        }
+
+        discoveryCache.save();
+      });
+
+      try {
+        Thread.sleep(Duration.ofSeconds(timeoutSeconds).toMillis());
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      var seen = discoveryService.getPis();
+      for (PiInfo cached : cachedInfos) {
+        boolean confirmed = seen.stream().anyMatch(pi -> cached.getName().equals(pi.getName()));
+        if (!confirmed) {
+          DriverStation.reportWarning("Cached Pi " + cached.getName() + " was not found within " + timeoutSeconds
+              + " s; dropped from the discovery cache", false);
+          discoveryCache.remove(cached.getName());
+        }
+      }
+
+      discoveryCache.save();
+    }, "PiDiscoveryCacheValidator");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  private void addDiscoveredPi(PiInfo piInfo) {
+    var systemName = piInfo.getName();
+    var processesOnPi = new ArrayList<P>();
+    for (ConstrainedProcess<?> constrainedProcess : constrainedProcesses) {
+      if (systemName != null && constrainedProcess.getPisToRunOn().contains(systemName)) {
+        processesOnPi.add((P) constrainedProcess.getProcessToRun());
       }
     }
 
-    if (best == null) {
-      throw new IllegalStateException("No Pis available to assign process: " + process);
+    var pi = new RaspberryPi<P>(piInfo.getHostnameLocal(), piInfo.getAutobahnPort().orElse(portAutobahn),
+        piInfo.getWatchdogPort().orElse(portComs));
+    pi.setName(systemName);
+    for (P process : processesOnPi) {
+      pi.addProcess(process);
     }
-    return best;
+    add(pi);
   }
 
   @SafeVarargs
@@ -1,9 +1,15 @@
 package pwrup.frc.core.online.raspberrypi;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import autobahn.client.AutobahnClient;
 import autobahn.client.NamedCallback;
@@ -11,55 +17,40 @@ import autobahn.client.NamedCallback;
 /*
  * This class is a wrapper around the AutobahnClient class that allows for the client to be optional.
  * This is useful for when the client is not yet connected to the network.
- * It also allows for the client to be set and replayed when the client is set.
+ * It also keeps the net subscription state so it can be re-established whenever the client is set.
  */
 public class OptionalAutobahn extends AutobahnClient {
-  private Optional<AutobahnClient> autobahnClient = Optional.empty();
+  private volatile Optional<AutobahnClient> autobahnClient = Optional.empty();
 
-  public OptionalAutobahn() {
-    super(null); // set fake. we aren't actually using this instance
+  /** How publishes of a topic are buffered while no real client is set. */
+  public enum BufferPolicy {
+    /** Only the newest payload of the topic is kept. */
+    LATEST_ONLY,
+    /** Every payload of the topic is kept, in order. */
+    FIFO
   }
 
   /**
-   * Cached subscription / unsubscription operations to replay once a real client
-   * is set.
+   * Publishes made while the real client is missing or disconnected, or
+   * {@code null} when buffering is disabled. Guarded by {@code publishLock}.
    */
-  private final List<CachedOperation> cachedOperations = new ArrayList<>();
+  private PublishBuffer publishBuffer = null;
+  private final Object publishLock = new Object();
+  /** Whether {@code publishBuffer} may hold publishes; lets connected publishes skip the lock. */
+  private volatile boolean hasBuffered = false;
+  private BufferPolicy defaultBufferPolicy = BufferPolicy.LATEST_ONLY;
+  private final Map<String, BufferPolicy> bufferPolicies = new HashMap<>();
 
-  private enum OperationType {
-    SUBSCRIBE_SINGLE,
-    SUBSCRIBE_MULTI,
-    UNSUBSCRIBE_TOPIC,
-    UNSUBSCRIBE_CALLBACK
+  public OptionalAutobahn() {
+    super(null); // set fake. we aren't actually using this instance
   }
 
-  private static class CachedOperation {
-    private final OperationType type;
-    private final String topic;
-    private final List<String> topics;
-    private final NamedCallback callback;
-
-    CachedOperation(OperationType type, String topic, NamedCallback callback) {
-      this.type = type;
-      this.topic = topic;
-      this.callback = callback;
-      this.topics = null;
-    }
-
-    CachedOperation(OperationType type, List<String> topics, NamedCallback callback) {
-      this.type = type;
-      this.topic = null;
-      this.callback = callback;
-      this.topics = new ArrayList<>(topics);
-    }
-
-    CachedOperation(OperationType type, String topic) {
-      this.type = type;
-      this.topic = topic;
-      this.callback = null;
-      this.topics = null;
-    }
-  }
+  /**
+   * Net subscription state, i.e. the callbacks currently subscribed per topic.
+   * A subscribe followed by an unsubscribe cancels out and duplicates collapse,
+   * so this is exactly what has to be re-established on a newly set client.
+   */
+  private final Map<String, Set<NamedCallback>> subscriptions = new LinkedHashMap<>();
 
   /** Returns the underlying real client, if one has been configured. */
   public Optional<AutobahnClient> getReal() {
@@ -72,108 +63,221 @@ public class OptionalAutobahn extends AutobahnClient {
   }
 
   /**
-   * Sets the real Autobahn client and replays any cached subscription /
-   * unsubscription
-   * operations against it.
+   * Sets the real Autobahn client, waiting as long as it takes for the
+   * subscription state to be re-established on it. See
+   * {@link #setAutobahnClient(AutobahnClient, long)}.
    */
   public void setAutobahnClient(AutobahnClient autobahnClient) {
-    this.autobahnClient = Optional.of(autobahnClient);
-
-    // Replay all cached operations in the order they were recorded.
-    for (CachedOperation op : cachedOperations) {
-      switch (op.type) {
-        case SUBSCRIBE_SINGLE:
-          this.autobahnClient.get().subscribe(op.topic, op.callback).join();
-          break;
-        case SUBSCRIBE_MULTI:
-          this.autobahnClient.get().subscribe(op.topics, op.callback).join();
-          break;
-        case UNSUBSCRIBE_TOPIC:
-          this.autobahnClient.get().unsubscribe(op.topic).join();
-          break;
-        case UNSUBSCRIBE_CALLBACK:
-          this.autobahnClient.get().unsubscribe(op.topic, op.callback).join();
-          break;
-        default:
-          break;
+    setAutobahnClient(autobahnClient, Long.MAX_VALUE);
+  }
+
+  /**
+   * Re-establishes the current subscription state on {@code autobahnClient},
+   * then makes it the real client and flushes any buffered publishes to it. The
+   * subscriptions are issued concurrently and this method blocks until every
+   * one of them has completed, or at most {@code timeoutMs}.
+   *
+   * <p>
+   * The client is only swapped in once the replay has succeeded. If it fails or
+   * times out, the previous client stays in place, nothing buffered is flushed
+   * and the caller still owns {@code autobahnClient}.
+   * </p>
+   *
+   * @throws java.util.concurrent.CompletionException if a subscription failed
+   *                                                  or the replay timed out
+   */
+  public void setAutobahnClient(AutobahnClient autobahnClient, long timeoutMs) {
+    // Hold the subscription lock until the swap so subscriptions made in the
+    // meantime cannot end up on the old client only.
+    synchronized (subscriptions) {
+      List<CompletableFuture<Void>> replayed = new ArrayList<>();
+      subscriptions.forEach((topic, callbacks) -> {
+        for (NamedCallback callback : callbacks) {
+          replayed.add(autobahnClient.subscribe(topic, callback));
+        }
+      });
+
+      CompletableFuture.allOf(replayed.toArray(CompletableFuture[]::new))
+          .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+          .join();
+
+      // Flush under the lock so publishes racing with this call cannot
+      // overtake the buffered ones.
+      synchronized (publishLock) {
+        this.autobahnClient = Optional.of(autobahnClient);
+        flushBuffered(autobahnClient);
       }
     }
+  }
+
+  /**
+   * Enables buffering of publishes made while the real client is missing or
+   * disconnected. Buffered publishes are flushed in bulk once a client is
+   * connected, see {@link #publish(String, byte[])}.
+   *
+   * @param capacity      maximum number of buffered publishes; the oldest is
+   *                      dropped when full
+   * @param defaultPolicy policy for topics without one set through
+   *                      {@link #setBufferPolicy(String, BufferPolicy)}
+   */
+  public void enablePublishBuffering(int capacity, BufferPolicy defaultPolicy) {
+    synchronized (publishLock) {
+      publishBuffer = new PublishBuffer(capacity);
+      defaultBufferPolicy = defaultPolicy;
+    }
+  }
+
+  /** Disables publish buffering and discards anything still buffered. */
+  public void disablePublishBuffering() {
+    synchronized (publishLock) {
+      publishBuffer = null;
+      hasBuffered = false;
+    }
+  }
+
+  /** Sets how publishes of {@code topic} are buffered while disconnected. */
+  public void setBufferPolicy(String topic, BufferPolicy policy) {
+    synchronized (publishLock) {
+      bufferPolicies.put(topic, policy);
+    }
+  }
+
+  /** Publishes that were buffered since buffering was enabled. */
+  public long getBufferedCount() {
+    synchronized (publishLock) {
+      return publishBuffer == null ? 0 : publishBuffer.getBufferedCount();
+    }
+  }
 
-    // cachedOperations.clear(); 
+  /** Buffered publishes replaced by a newer payload of a latest-only topic. */
+  public long getCoalescedCount() {
+    synchronized (publishLock) {
+      return publishBuffer == null ? 0 : publishBuffer.getCoalescedCount();
+    }
+  }
+
+  /** Buffered publishes dropped because the buffer was full. */
+  public long getDroppedCount() {
+    synchronized (publishLock) {
+      return publishBuffer == null ? 0 : publishBuffer.getDroppedCount();
+    }
   }
 
   /**
-   * Publishes a message. If the real client is not yet present, this is a no-op
-   * and the
-   * publish is dropped (nothing is cached or replayed later).
+   * Publishes a message. While the real client is missing or disconnected, the
+   * publish is buffered when publish buffering is enabled; the buffer is
+   * flushed by the next publish once the client is connected again, or when a
+   * new client is set. Without buffering the publish goes to the real client,
+   * if any, and is dropped otherwise.
    */
   @Override
   public CompletableFuture<Void> publish(String topic, byte[] payload) {
-    if (autobahnClient.isPresent()) {
-      return autobahnClient.get().publish(topic, payload);
+    var real = autobahnClient;
+    if (!hasBuffered && real.isPresent() && real.get().isConnected()) {
+      return real.get().publish(topic, payload);
+    }
+
+    synchronized (publishLock) {
+      real = autobahnClient;
+      if (real.isPresent() && real.get().isConnected()) {
+        flushBuffered(real.get());
+        return real.get().publish(topic, payload);
+      }
+
+      if (publishBuffer != null) {
+        publishBuffer.add(topic, payload, bufferPolicies.getOrDefault(topic, defaultBufferPolicy));
+        hasBuffered = true;
+      } else if (real.isPresent()) {
+        return real.get().publish(topic, payload);
+      }
     }
 
-    // Drop publishes when there is no real client yet.
     return CompletableFuture.completedFuture(null);
   }
 
+  /** Publishes everything buffered to {@code client}. Caller holds {@code publishLock}. */
+  private void flushBuffered(AutobahnClient client) {
+    if (publishBuffer != null) {
+      publishBuffer.drainTo(client::publish);
+    }
+
+    hasBuffered = false;
+  }
+
   /**
-   * Subscribes to a topic. If the real client is not yet present, this call is
-   * cached and
-   * will be replayed when {@link #setAutobahnClient(AutobahnClient)} is called.
+   * Subscribes to a topic. The subscription is recorded and will be
+   * re-established whenever {@link #setAutobahnClient(AutobahnClient)} is
+   * called, including when no real client is present yet.
    */
   @Override
   public CompletableFuture<Void> subscribe(String topic, NamedCallback callback) {
+    synchronized (subscriptions) {
+      subscriptions.computeIfAbsent(topic, t -> new LinkedHashSet<>()).add(callback);
+    }
+
     if (autobahnClient.isPresent()) {
       return autobahnClient.get().subscribe(topic, callback);
     }
 
-    cachedOperations.add(new CachedOperation(OperationType.SUBSCRIBE_SINGLE, topic, callback));
     return CompletableFuture.completedFuture(null);
   }
 
   /**
-   * Subscribes to multiple topics with the same callback. If the real client is
-   * not yet
-   * present, this call is cached and will be replayed when the client is set.
+   * Subscribes to multiple topics with the same callback. The subscriptions are
+   * recorded and will be re-established whenever the client is set.
    */
   @Override
   public CompletableFuture<Void> subscribe(List<String> topics, NamedCallback callback) {
+    synchronized (subscriptions) {
+      for (String topic : topics) {
+        subscriptions.computeIfAbsent(topic, t -> new LinkedHashSet<>()).add(callback);
+      }
+    }
+
     if (autobahnClient.isPresent()) {
       return autobahnClient.get().subscribe(topics, callback);
     }
 
-    cachedOperations.add(new CachedOperation(OperationType.SUBSCRIBE_MULTI, topics, callback));
     return CompletableFuture.completedFuture(null);
   }
 
   /**
-   * Unsubscribes from a topic. If the real client is not yet present, this
-   * operation is
-   * cached and will be replayed when the client is set.
+   * Unsubscribes from a topic and drops it from the recorded subscription
+   * state.
    */
   @Override
   public CompletableFuture<Void> unsubscribe(String topic) {
+    synchronized (subscriptions) {
+      subscriptions.remove(topic);
+    }
+
     if (autobahnClient.isPresent()) {
       return autobahnClient.get().unsubscribe(topic);
     }
 
-    cachedOperations.add(new CachedOperation(OperationType.UNSUBSCRIBE_TOPIC, topic));
     return CompletableFuture.completedFuture(null);
   }
 
   /**
-   * Unsubscribes a specific callback from a topic. If the real client is not yet
-   * present,
-   * this operation is cached and will be replayed when the client is set.
+   * Unsubscribes a specific callback from a topic and drops it from the
+   * recorded subscription state.
    */
   @Override
   public CompletableFuture<Void> unsubscribe(String topic, NamedCallback callback) {
+    synchronized (subscriptions) {
+      var callbacks = subscriptions.get(topic);
+      if (callbacks != null) {
+        callbacks.remove(callback);
+        if (callbacks.isEmpty()) {
+          subscriptions.remove(topic);
+        }
+      }
+    }
+
     if (autobahnClient.isPresent()) {
       return autobahnClient.get().unsubscribe(topic, callback);
     }
 
-    cachedOperations.add(new CachedOperation(OperationType.UNSUBSCRIBE_CALLBACK, topic, callback));
     return CompletableFuture.completedFuture(null);
   }
 }
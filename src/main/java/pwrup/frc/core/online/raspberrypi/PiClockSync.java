@@ -0,0 +1,277 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import autobahn.client.AutobahnClient;
+import autobahn.client.NamedCallback;
+import core4765.proto.status.PiStatusOuterClass.ClockSync;
+import core4765.proto.status.PiStatusOuterClass.ClockSyncEstimates;
+import core4765.proto.status.PiStatusOuterClass.Ping;
+import core4765.proto.status.PiStatusOuterClass.Pong;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+import pwrup.frc.core.proto.IDataClass;
+
+/**
+ * Estimates the clock offset and round-trip time to every Pi.
+ *
+ * <p>
+ * The service publishes a {@link Ping} holding the robot's send time
+ * {@code t1} at a fixed rate. Each Pi answers with a {@link Pong} holding
+ * {@code t1} and its own receive time {@code t2}, which also serves as its send
+ * time. With {@code t4} the robot's receive time, a sample is computed the NTP
+ * way:
+ * </p>
+ *
+ * <pre>
+ * offset = ((t2 - t1) + (t2 - t4)) / 2   // Pi clock minus robot clock
+ * rtt    = t4 - t1
+ * </pre>
+ *
+ * <p>
+ * A sample delayed on one leg of the trip skews its offset by up to half the
+ * delay. The estimate is therefore the sample with the lowest RTT among the
+ * last {@code window} samples, and samples with an implausible RTT are dropped.
+ * The estimates of all Pis can be published through {@link #asDataClass}.
+ * </p>
+ *
+ * <p>
+ * Times are in milliseconds. Robot times come from the FPGA clock, which is
+ * monotonic and counts from robot boot, so offsets relate each Pi's clock to
+ * the FPGA timebase rather than to wall-clock time.
+ * </p>
+ */
+public class PiClockSync {
+
+  private static final int DEFAULT_WINDOW = 16;
+  private static final long DEFAULT_PERIOD_MS = 500;
+  private static final long DEFAULT_MAX_RTT_MS = 1000;
+
+  /** The last samples of one Pi. Guarded by its own monitor. */
+  private static final class PiClock {
+    private final double[] offsets;
+    private final double[] rtts;
+    private int next = 0;
+    private int size = 0;
+    private double lastSampleMillis = 0;
+
+    PiClock(int window) {
+      this.offsets = new double[window];
+      this.rtts = new double[window];
+    }
+
+    void add(double offset, double rtt, double now) {
+      offsets[next] = offset;
+      rtts[next] = rtt;
+      next = (next + 1) % offsets.length;
+      size = Math.min(size + 1, offsets.length);
+      lastSampleMillis = now;
+    }
+
+    /** Index of the sample with the lowest RTT, or -1 if there are none. */
+    int best() {
+      int best = -1;
+      for (int i = 0; i < size; i++) {
+        if (best < 0 || rtts[i] < rtts[best]) {
+          best = i;
+        }
+      }
+
+      return best;
+    }
+  }
+
+  private final AutobahnClient client;
+  private final String pingTopic;
+  private final String pongTopic;
+  private final Map<String, PiClock> clocks = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+    var t = new Thread(r, "PiClockSync");
+    t.setDaemon(true);
+    return t;
+  });
+
+  private int window = DEFAULT_WINDOW;
+  private long periodMs = DEFAULT_PERIOD_MS;
+  private long maxRttMs = DEFAULT_MAX_RTT_MS;
+  private ScheduledFuture<?> task = null;
+  private NamedCallback pongCallback = null;
+
+  /**
+   * @param client    the client to ping through
+   * @param pingTopic topic the Pis listen for pings on
+   * @param pongTopic topic the Pis answer on
+   */
+  public PiClockSync(AutobahnClient client, String pingTopic, String pongTopic) {
+    this.client = client;
+    this.pingTopic = pingTopic;
+    this.pongTopic = pongTopic;
+  }
+
+  /**
+   * Sets the timing. Must be called before {@link #start()}.
+   *
+   * @param periodMs time between pings
+   * @param window   samples considered per Pi
+   * @param maxRttMs samples with a longer round trip are dropped
+   */
+  public PiClockSync withTiming(long periodMs, int window, long maxRttMs) {
+    this.periodMs = periodMs;
+    this.window = window;
+    this.maxRttMs = maxRttMs;
+    return this;
+  }
+
+  public synchronized void start() {
+    if (task == null) {
+      pongCallback = NamedCallback.FromConsumer(this::onPong);
+      client.subscribe(pongTopic, pongCallback);
+      task = executor.scheduleAtFixedRate(this::ping, 0, periodMs, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  public synchronized void stop() {
+    if (task != null) {
+      task.cancel(false);
+      task = null;
+      client.unsubscribe(pongTopic, pongCallback);
+      pongCallback = null;
+    }
+  }
+
+  /** Names of the Pis that have answered. */
+  public Set<String> getPiNames() {
+    return clocks.keySet();
+  }
+
+  /** Estimated Pi clock minus robot clock in milliseconds. */
+  public OptionalDouble getOffsetMs(String piName) {
+    var clock = clocks.get(piName);
+    if (clock == null) {
+      return OptionalDouble.empty();
+    }
+
+    synchronized (clock) {
+      int best = clock.best();
+      return best < 0 ? OptionalDouble.empty() : OptionalDouble.of(clock.offsets[best]);
+    }
+  }
+
+  /** Round-trip time of the sample the offset estimate is based on. */
+  public OptionalDouble getRttMs(String piName) {
+    var clock = clocks.get(piName);
+    if (clock == null) {
+      return OptionalDouble.empty();
+    }
+
+    synchronized (clock) {
+      int best = clock.best();
+      return best < 0 ? OptionalDouble.empty() : OptionalDouble.of(clock.rtts[best]);
+    }
+  }
+
+  /** Milliseconds since the Pi last answered, or infinity if it never did. */
+  public double getMillisSinceSample(String piName) {
+    var clock = clocks.get(piName);
+    if (clock == null) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    synchronized (clock) {
+      return robotMillis() - clock.lastSampleMillis;
+    }
+  }
+
+  /**
+   * Converts a timestamp taken on the Pi, e.g. a camera capture time, to robot
+   * time.
+   *
+   * @return the FPGA time in milliseconds, or empty if the Pi has no estimate
+   *         yet
+   */
+  public OptionalDouble piToRobotMillis(String piName, double piTimeMillis) {
+    var offset = getOffsetMs(piName);
+    return offset.isPresent() ? OptionalDouble.of(piTimeMillis - offset.getAsDouble()) : OptionalDouble.empty();
+  }
+
+  /**
+   * The current estimate of every Pi as a {@link ClockSyncEstimates} proto, so
+   * vision consumers can convert Pi timestamps themselves. Register it with a
+   * PublicationSubsystem to publish it every loop.
+   */
+  public IDataClass asDataClass(String topic) {
+    return new IDataClass() {
+      @Override
+      public byte[] getRawConstructedProtoData() {
+        var estimates = ClockSyncEstimates.newBuilder();
+        for (String piName : getPiNames()) {
+          var offset = getOffsetMs(piName);
+          var rtt = getRttMs(piName);
+          if (offset.isPresent() && rtt.isPresent()) {
+            estimates.addEstimates(ClockSync
+                .newBuilder()
+                .setPiName(piName)
+                .setOffsetMs(offset.getAsDouble())
+                .setRttMs(rtt.getAsDouble())
+                .setSampleAgeMs(getMillisSinceSample(piName))
+                .build());
+          }
+        }
+
+        return estimates.build().toByteArray();
+      }
+
+      @Override
+      public String getPublishTopic() {
+        return topic;
+      }
+    };
+  }
+
+  private void ping() {
+    var ping = Ping.newBuilder().setTimestamp((long) robotMillis()).build();
+    try {
+      client.publish(pingTopic, ping.toByteArray());
+    } catch (RuntimeException e) {
+      // an exception would cancel the scheduled task; try again next period
+      DriverStation.reportWarning("Failed to send clock sync ping: " + e.getMessage(), false);
+    }
+  }
+
+  private void onPong(byte[] message) {
+    double t4 = robotMillis();
+    Pong pong;
+    try {
+      pong = Pong.parseFrom(message);
+    } catch (InvalidProtocolBufferException e) {
+      DriverStation.reportWarning("Dropping malformed clock sync pong: " + e.getMessage(), false);
+      return;
+    }
+
+    double t1 = pong.getTimestampMsOriginal();
+    double t2 = pong.getTimestampMsReceived();
+    double rtt = t4 - t1;
+    if (rtt < 0 || rtt > maxRttMs) {
+      return;
+    }
+
+    double offset = ((t2 - t1) + (t2 - t4)) / 2;
+    var clock = clocks.computeIfAbsent(pong.getPiName(), name -> new PiClock(window));
+    synchronized (clock) {
+      clock.add(offset, rtt, t4);
+    }
+  }
+
+  private static double robotMillis() {
+    return RobotController.getFPGATime() / 1000.0;
+  }
+}
@@ -0,0 +1,81 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import lombok.Getter;
+
+/**
+ * Outcome of a single command sent to a {@link RaspberryPi}.
+ *
+ * <p>
+ * A command succeeded if the Pi answered with HTTP 200, or if it was skipped
+ * because the Pi was already in the requested state. Otherwise
+ * {@link #getStatusCode()} holds the HTTP status the Pi answered with, or
+ * {@link #NO_STATUS} if there was no answer, and {@link #getMessage()} /
+ * {@link #getError()} describe what went wrong.
+ * </p>
+ */
+@Getter
+public class PiCommandResult {
+
+  /** Status code used when the Pi never answered. */
+  public static final int NO_STATUS = -1;
+
+  private final String command;
+  private final String address;
+  private final boolean success;
+  private final int statusCode;
+  private final String message;
+  private final Optional<Throwable> error;
+  private final Duration latency;
+
+  private PiCommandResult(String command, String address, boolean success, int statusCode, String message,
+      Optional<Throwable> error, Duration latency) {
+    this.command = command;
+    this.address = address;
+    this.success = success;
+    this.statusCode = statusCode;
+    this.message = message;
+    this.error = error;
+    this.latency = latency;
+  }
+
+  static PiCommandResult ok(String command, String address, Duration latency) {
+    return new PiCommandResult(command, address, true, 200, "OK", Optional.empty(), latency);
+  }
+
+  /** Nothing had to be sent because the Pi is already in the requested state. */
+  static PiCommandResult skipped(String command, String address, String reason) {
+    return new PiCommandResult(command, address, true, NO_STATUS, reason, Optional.empty(), Duration.ZERO);
+  }
+
+  /** The Pi answered, but not with HTTP 200. */
+  static PiCommandResult httpError(String command, String address, int statusCode, Duration latency) {
+    return new PiCommandResult(command, address, false, statusCode, "Status: " + statusCode, Optional.empty(),
+        latency);
+  }
+
+  /** The request could not be sent or no answer arrived. */
+  static PiCommandResult failed(String command, String address, Throwable error, Duration latency) {
+    return new PiCommandResult(command, address, false, NO_STATUS, String.valueOf(error.getMessage()),
+        Optional.of(error), latency);
+  }
+
+  /** The command was never sent, e.g. because there was nothing to do. */
+  static PiCommandResult notSent(String command, String address, String reason) {
+    return new PiCommandResult(command, address, false, NO_STATUS, reason, Optional.empty(), Duration.ZERO);
+  }
+
+  /** No answer arrived before the caller's deadline. */
+  static PiCommandResult timedOut(String command, String address, Duration deadline) {
+    return new PiCommandResult(command, address, false, NO_STATUS, "No answer within " + deadline.toMillis() + " ms",
+        Optional.empty(), deadline);
+  }
+
+  @Override
+  public String toString() {
+    return (success ? "Succeeded to " : "Failed to ") + command + " for " + address + " - " + message + " ("
+        + latency.toMillis() + " ms)";
+  }
+}
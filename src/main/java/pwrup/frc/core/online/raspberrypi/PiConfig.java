@@ -0,0 +1,83 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+/**
+ * A configuration to push to one or more {@link RaspberryPi}s.
+ *
+ * <p>
+ * The request body is serialized once and shared by every Pi the config is
+ * sent to; the gzip-compressed body is only built if a Pi asks for it. The
+ * SHA-256 content hash lets a Pi skip pushing a config it already
+ * acknowledged.
+ * </p>
+ */
+public final class PiConfig {
+
+  private static final Gson gson = new GsonBuilder().create();
+
+  private final String rawJsonConfig;
+  private final String hash;
+  private final byte[] body;
+  private volatile byte[] gzippedBody = null;
+
+  private PiConfig(String rawJsonConfig) {
+    this.rawJsonConfig = rawJsonConfig;
+    this.hash = sha256(rawJsonConfig);
+    this.body = gson.toJson(Map.of("config_base64", rawJsonConfig)).getBytes(StandardCharsets.UTF_8);
+  }
+
+  public static PiConfig of(String rawJsonConfig) {
+    return new PiConfig(rawJsonConfig);
+  }
+
+  public String getRawJsonConfig() {
+    return rawJsonConfig;
+  }
+
+  /** Hex SHA-256 of the raw configuration. */
+  public String getHash() {
+    return hash;
+  }
+
+  byte[] getBody() {
+    return body;
+  }
+
+  byte[] getGzippedBody() {
+    byte[] gzipped = gzippedBody;
+    if (gzipped == null) {
+      var out = new ByteArrayOutputStream(body.length / 4 + 64);
+      try (var gzip = new GZIPOutputStream(out)) {
+        gzip.write(body);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+
+      gzipped = out.toByteArray();
+      gzippedBody = gzipped;
+    }
+
+    return gzipped;
+  }
+
+  private static String sha256(String value) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+}
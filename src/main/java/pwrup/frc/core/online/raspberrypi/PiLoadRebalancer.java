@@ -0,0 +1,322 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import autobahn.client.AutobahnClient;
+import autobahn.client.NamedCallback;
+import core4765.proto.status.PiStatusOuterClass.PiProcess;
+import core4765.proto.status.PiStatusOuterClass.PiStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Moves processes off Pis that stay overloaded.
+ *
+ * <p>
+ * The rebalancer listens to the {@link PiStatus} messages of the Pis in a
+ * {@link PiNetwork}. It smooths each Pi's {@code cpu_usage_total} and learns
+ * what each managed process really costs from {@code top_10_processes}; a
+ * process is recognized by its name matching the process enum's
+ * {@code toString()}. Both are exponentially weighted moving averages.
+ * </p>
+ *
+ * <p>
+ * A Pi counts as hot once its load reaches the hot threshold and stays hot until
+ * it drops below the cool threshold. When a Pi has been hot for the sustain
+ * time, the rebalancer moves one process with a known cost to the coolest Pi
+ * below the cool threshold that can take it without turning hot. A move uses
+ * {@link RaspberryPi#stopProcessAsync(Enum)} on the hot Pi, then
+ * {@link RaspberryPi#startProcessAsync(Enum)} on the target, so no other
+ * process is restarted; a failed start puts the process back on the hot Pi the
+ * same way. Only one move is in flight at a time and moves are at least the
+ * cooldown apart, so processes do not bounce between Pis.
+ * </p>
+ *
+ * <p>
+ * Pis are matched to status messages through {@link RaspberryPi#getName()}, so
+ * Pis without a name are never rebalanced.
+ * </p>
+ *
+ * @param <P> the process enum
+ */
+public class PiLoadRebalancer<P extends Enum<P>> {
+
+  private static final double DEFAULT_SMOOTHING = 0.2;
+  private static final double DEFAULT_HOT_THRESHOLD = 85;
+  private static final double DEFAULT_COOL_THRESHOLD = 60;
+  private static final long DEFAULT_SUSTAIN_MS = 5000;
+  private static final long DEFAULT_COOLDOWN_MS = 30000;
+
+  /** Smoothed load of one Pi. */
+  private static final class PiLoad {
+    private double load = Double.NaN;
+    private long hotSinceNanos = -1;
+  }
+
+  private final PiNetwork<P> network;
+  private final Map<String, PiLoad> loadByPiName = new HashMap<>();
+  private final Map<String, Double> costByProcessName = new HashMap<>();
+  private final Set<P> pinned = new HashSet<>();
+
+  private double smoothing = DEFAULT_SMOOTHING;
+  private double hotThreshold = DEFAULT_HOT_THRESHOLD;
+  private double coolThreshold = DEFAULT_COOL_THRESHOLD;
+  private long sustainNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_SUSTAIN_MS);
+  private long cooldownNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_COOLDOWN_MS);
+
+  private boolean migrating = false;
+  private long lastMigrationNanos = Long.MIN_VALUE;
+  private long migrations = 0;
+
+  public PiLoadRebalancer(PiNetwork<P> network) {
+    this.network = network;
+  }
+
+  /**
+   * Sets the load thresholds, in the unit of {@code cpu_usage_total}.
+   *
+   * @param hotThreshold  load at which a Pi turns hot
+   * @param coolThreshold load below which a Pi stops being hot; target Pis must
+   *                      be below it
+   */
+  public PiLoadRebalancer<P> withThresholds(double hotThreshold, double coolThreshold) {
+    if (coolThreshold > hotThreshold) {
+      throw new IllegalArgumentException("Cool threshold must not exceed the hot threshold");
+    }
+
+    this.hotThreshold = hotThreshold;
+    this.coolThreshold = coolThreshold;
+    return this;
+  }
+
+  /**
+   * @param sustainMs  how long a Pi must stay hot before a process is moved
+   * @param cooldownMs minimum time between two moves
+   */
+  public PiLoadRebalancer<P> withTiming(long sustainMs, long cooldownMs) {
+    this.sustainNanos = TimeUnit.MILLISECONDS.toNanos(sustainMs);
+    this.cooldownNanos = TimeUnit.MILLISECONDS.toNanos(cooldownMs);
+    return this;
+  }
+
+  /** Weight of the newest sample in the moving averages, in (0, 1]. */
+  public PiLoadRebalancer<P> withSmoothing(double smoothing) {
+    if (smoothing <= 0 || smoothing > 1) {
+      throw new IllegalArgumentException("Smoothing must be in (0, 1]: " + smoothing);
+    }
+
+    this.smoothing = smoothing;
+    return this;
+  }
+
+  /** Never moves the given processes, e.g. ones tied to a camera. */
+  @SafeVarargs
+  public final synchronized PiLoadRebalancer<P> pin(P... processes) {
+    pinned.addAll(List.of(processes));
+    return this;
+  }
+
+  /** Subscribes to the Pis' status topics on {@code client}. */
+  public void start(AutobahnClient client, String... piStatusTopics) {
+    var callback = NamedCallback.FromConsumer(this::onStatus);
+    for (String topic : piStatusTopics) {
+      client.subscribe(topic, callback);
+    }
+  }
+
+  /** The learned cost of {@code process}, if it has been seen in a status. */
+  public synchronized OptionalDouble getLearnedCost(P process) {
+    var cost = costByProcessName.get(process.toString());
+    return cost == null ? OptionalDouble.empty() : OptionalDouble.of(cost);
+  }
+
+  /** The smoothed load of the Pi named {@code piName}, if it has reported. */
+  public synchronized OptionalDouble getLoad(String piName) {
+    var load = loadByPiName.get(piName);
+    return load == null || Double.isNaN(load.load) ? OptionalDouble.empty() : OptionalDouble.of(load.load);
+  }
+
+  public synchronized long getMigrationCount() {
+    return migrations;
+  }
+
+  private void onStatus(byte[] message) {
+    PiStatus status;
+    try {
+      status = PiStatus.parseFrom(message);
+    } catch (InvalidProtocolBufferException e) {
+      DriverStation.reportWarning("Dropping malformed Pi status: " + e.getMessage(), false);
+      return;
+    }
+
+    update(status, System.nanoTime());
+  }
+
+  synchronized void update(PiStatus status, long nowNanos) {
+    var piLoad = loadByPiName.computeIfAbsent(status.getPiName(), name -> new PiLoad());
+    piLoad.load = smooth(piLoad.load, status.getCpuUsageTotal());
+
+    var managed = new HashSet<String>();
+    for (var pi : network.getPis()) {
+      for (P process : pi.getProcessesToRun()) {
+        managed.add(process.toString());
+      }
+    }
+
+    // a process may show up with several PIDs; its cost is their sum
+    var costs = new HashMap<String, Double>();
+    for (PiProcess process : status.getTop10ProcessesList()) {
+      if (managed.contains(process.getName())) {
+        costs.merge(process.getName(), (double) process.getCpuUsage(), Double::sum);
+      }
+    }
+
+    costs.forEach((name, cost) -> costByProcessName.merge(name, cost, this::smooth));
+
+    if (piLoad.load >= hotThreshold) {
+      if (piLoad.hotSinceNanos < 0) {
+        piLoad.hotSinceNanos = nowNanos;
+      }
+    } else if (piLoad.load < coolThreshold) {
+      piLoad.hotSinceNanos = -1;
+    }
+
+    if (piLoad.hotSinceNanos >= 0 && nowNanos - piLoad.hotSinceNanos >= sustainNanos && !migrating
+        && (lastMigrationNanos == Long.MIN_VALUE || nowNanos - lastMigrationNanos >= cooldownNanos)) {
+      tryMigrateFrom(status.getPiName(), nowNanos);
+    }
+  }
+
+  private void tryMigrateFrom(String hotPiName, long nowNanos) {
+    RaspberryPi<P> source = null;
+    var targets = new ArrayList<RaspberryPi<P>>();
+    for (var pi : network.getPis()) {
+      if (pi.getName() == null) {
+        continue;
+      }
+
+      if (pi.getName().equals(hotPiName)) {
+        source = pi;
+        continue;
+      }
+
+      var load = loadByPiName.get(pi.getName());
+      if (load != null && !Double.isNaN(load.load) && load.load < coolThreshold) {
+        targets.add(pi);
+      }
+    }
+
+    if (source == null || targets.isEmpty()) {
+      return;
+    }
+
+    targets.sort(Comparator.comparingDouble((RaspberryPi<P> pi) -> loadByPiName.get(pi.getName()).load)
+        .thenComparing(RaspberryPi::getName));
+    var target = targets.get(0);
+    double sourceLoad = loadByPiName.get(hotPiName).load;
+    double targetLoad = loadByPiName.get(target.getName()).load;
+
+    // the heaviest movable process that does not turn the target hot and
+    // leaves the target below where the source was, so it cannot bounce back
+    P best = null;
+    double bestCost = 0;
+    for (P process : source.getProcessesToRun()) {
+      var cost = costByProcessName.get(process.toString());
+      if (pinned.contains(process) || cost == null || cost <= bestCost) {
+        continue;
+      }
+
+      if (targetLoad + cost < hotThreshold && targetLoad + cost < sourceLoad - cost) {
+        best = process;
+        bestCost = cost;
+      }
+    }
+
+    if (best != null) {
+      migrate(best, bestCost, source, target, nowNanos);
+    }
+  }
+
+  private void migrate(P process, double cost, RaspberryPi<P> source, RaspberryPi<P> target, long nowNanos) {
+    migrating = true;
+    lastMigrationNanos = nowNanos;
+    migrations++;
+
+    // assume the move succeeds until fresh status messages say otherwise
+    var sourceLoad = loadByPiName.get(source.getName());
+    var targetLoad = loadByPiName.get(target.getName());
+    sourceLoad.load -= cost;
+    sourceLoad.hotSinceNanos = -1;
+    targetLoad.load += cost;
+
+    DriverStation.reportWarning("Moving " + process + " from " + source.getName() + " to " + target.getName()
+        + " (cost " + String.format("%.1f", cost) + ")", false);
+
+    source.stopProcessAsync(process)
+        .thenCompose(stopped -> {
+          if (!stopped.isSuccess()) {
+            // the process still runs on the source
+            source.addProcess(process);
+            return CompletableFuture.completedFuture(stopped);
+          }
+
+          return target.startProcessAsync(process).thenCompose(started -> {
+            if (started.isSuccess()) {
+              return CompletableFuture.completedFuture(started);
+            }
+
+            return rollBack(process, source, target).thenApply(restarted -> started);
+          });
+        })
+        .whenComplete((result, error) -> {
+          boolean failed = error != null || !result.isSuccess();
+          if (failed) {
+            DriverStation.reportWarning("Moving " + process + " failed: " + (error != null ? error : result), false);
+            if (error != null) {
+              // a throw may have left the process on either list; make sure
+              // it is managed by the source only
+              rollBack(process, source, target);
+            }
+          }
+
+          synchronized (this) {
+            if (failed) {
+              sourceLoad.load += cost;
+              targetLoad.load -= cost;
+            }
+
+            migrating = false;
+          }
+        });
+  }
+
+  /**
+   * Puts {@code process} back on {@code source} after a failed move: stops it on
+   * the target in case it partially started there, then restarts it on the
+   * source.
+   */
+  private CompletableFuture<PiCommandResult> rollBack(P process, RaspberryPi<P> source, RaspberryPi<P> target) {
+    return target.stopProcessAsync(process)
+        .thenCompose(stopped -> source.startProcessAsync(process))
+        .whenComplete((restarted, error) -> {
+          if (error != null || !restarted.isSuccess()) {
+            DriverStation.reportWarning("Restarting " + process + " on " + source.getName() + " failed: "
+                + (error != null ? error : restarted), false);
+          }
+        });
+  }
+
+  private double smooth(double average, double sample) {
+    return Double.isNaN(average) ? sample : average + smoothing * (sample - average);
+  }
+}
@@ -1,9 +1,16 @@
 package pwrup.frc.core.online.raspberrypi;
 
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 import autobahn.client.Address;
+import core4765.proto.status.PiStatusOuterClass.PiStatus;
 
 /**
  * Manages a network of Raspberry Pi devices with coordinated control
@@ -32,6 +39,11 @@ import autobahn.client.Address;
  */
 public class PiNetwork<P extends Enum<P>> {
 
+    /**
+     * Deadline used by the blocking batch operations for the whole network.
+     */
+    public static final Duration DEFAULT_BATCH_DEADLINE = Duration.ofSeconds(5);
+
     private final List<RaspberryPi<P>> raspberryPis;
 
     /**
@@ -142,45 +154,70 @@ public class PiNetwork<P extends Enum<P>> {
      * Starts all processes on all Raspberry Pis in the network.
      * 
      * <p>
-     * This method calls {@link RaspberryPi#startProcesses()} on each Pi in the
-     * network.
-     * All Pis are started in parallel, but this method blocks until all operations
-     * complete.
+     * This method calls {@link RaspberryPi#startProcessesAsync()} on each Pi in
+     * the network. All Pis are started in parallel, but this method blocks until
+     * all operations complete or {@link #DEFAULT_BATCH_DEADLINE} passes.
      * </p>
      * 
      * @return {@code true} if all processes on all Pis were successfully started,
      *         {@code false} if any Pi failed to start its processes
      */
     public boolean startAllPis() {
-        return raspberryPis.stream().allMatch(RaspberryPi::startProcesses);
+        return allSucceeded(startAllPisAsync(DEFAULT_BATCH_DEADLINE));
+    }
+
+    /**
+     * Starts all processes on all Raspberry Pis in the network without blocking.
+     * 
+     * <p>
+     * Requests to all Pis are sent concurrently. A Pi that has not answered when
+     * {@code deadline} passes is reported as failed.
+     * </p>
+     * 
+     * @param deadline overall deadline for the whole network
+     * @return a future completing with the result of every Pi, in network order;
+     *         it never completes exceptionally
+     */
+    public CompletableFuture<Map<RaspberryPi<P>, PiCommandResult>> startAllPisAsync(Duration deadline) {
+        return fanOut(RaspberryPi::startProcessesAsync, deadline);
     }
 
     /**
      * Stops all processes on all Raspberry Pis in the network.
      * 
      * <p>
-     * This method calls {@link RaspberryPi#stopProcesses()} on each Pi in the
-     * network.
-     * All Pis are stopped in parallel, but this method blocks until all operations
-     * complete.
+     * This method calls {@link RaspberryPi#stopProcessesAsync()} on each Pi in
+     * the network. All Pis are stopped in parallel, but this method blocks until
+     * all operations complete or {@link #DEFAULT_BATCH_DEADLINE} passes.
      * </p>
      * 
      * @return {@code true} if all processes on all Pis were successfully stopped,
      *         {@code false} if any Pi failed to stop its processes
      */
     public boolean stopAllPis() {
-        return raspberryPis.stream().allMatch(RaspberryPi::stopProcesses);
+        return allSucceeded(stopAllPisAsync(DEFAULT_BATCH_DEADLINE));
+    }
+
+    /**
+     * Stops all processes on all Raspberry Pis in the network without blocking.
+     * 
+     * @param deadline overall deadline for the whole network
+     * @return a future completing with the result of every Pi, in network order
+     * @see #startAllPisAsync(Duration)
+     */
+    public CompletableFuture<Map<RaspberryPi<P>, PiCommandResult>> stopAllPisAsync(Duration deadline) {
+        return fanOut(RaspberryPi::stopProcessesAsync, deadline);
     }
 
     /**
      * Sets the same configuration on all Raspberry Pis in the network.
      * 
      * <p>
-     * This method calls {@link RaspberryPi#setConfig(String)} on each Pi in the
-     * network
-     * with the same configuration string. All configuration operations are
-     * performed in
-     * parallel, but this method blocks until all operations complete.
+     * This method sends the same configuration to each Pi in the network, even to
+     * Pis that acknowledged it before; see
+     * {@link RaspberryPi#sendConfigAsync(PiConfig)}. All configuration
+     * operations are performed in parallel, but this method blocks until all
+     * operations complete or {@link #DEFAULT_BATCH_DEADLINE} passes.
      * </p>
      * 
      * @param rawConfig the JSON configuration string to be set on all Raspberry Pis
@@ -188,7 +225,77 @@ public class PiNetwork<P extends Enum<P>> {
      *         {@code false} if any Pi failed to set the configuration
      */
     public boolean setConfig(String rawConfig) {
-        return raspberryPis.stream().allMatch(raspberryPi -> raspberryPi.setConfig(rawConfig));
+        var config = PiConfig.of(rawConfig);
+        return allSucceeded(fanOut(raspberryPi -> raspberryPi.sendConfigAsync(config), DEFAULT_BATCH_DEADLINE));
+    }
+
+    /**
+     * Sets the same configuration on all Raspberry Pis in the network without
+     * blocking.
+     * 
+     * <p>
+     * The request body is serialized once for all Pis, and Pis that already
+     * acknowledged the same config are skipped; see
+     * {@link RaspberryPi#setConfigAsync(PiConfig)}.
+     * </p>
+     * 
+     * @param rawConfig the JSON configuration string to be set on all Raspberry Pis
+     * @param deadline  overall deadline for the whole network
+     * @return a future completing with the result of every Pi, in network order
+     * @see #startAllPisAsync(Duration)
+     */
+    public CompletableFuture<Map<RaspberryPi<P>, PiCommandResult>> setConfigAsync(String rawConfig, Duration deadline) {
+        var config = PiConfig.of(rawConfig);
+        return fanOut(raspberryPi -> raspberryPi.setConfigAsync(config), deadline);
+    }
+
+    /**
+     * Reconciles the processes of every Raspberry Pi in the network against its
+     * latest status without blocking.
+     * 
+     * <p>
+     * Each Pi is matched to its status by {@link RaspberryPi#getName()}, and only
+     * the difference between the desired and the running processes is started or
+     * stopped; see {@link RaspberryPi#reconcileProcessesAsync(PiStatus)}. Unlike
+     * {@link #restartAllPis()}, healthy processes keep running. Pis without a
+     * name, without a status, or whose status does not report its running
+     * processes are reported as failed and left alone.
+     * </p>
+     * 
+     * @param statusByPiName latest {@link PiStatus} per {@code pi_name}
+     * @param deadline       overall deadline for the whole network
+     * @return a future completing with the result of every Pi, in network order;
+     *         it never completes exceptionally
+     */
+    public CompletableFuture<Map<RaspberryPi<P>, PiCommandResult>> reconcileAllPisAsync(
+            Map<String, PiStatus> statusByPiName, Duration deadline) {
+        return fanOut(raspberryPi -> {
+            var status = raspberryPi.getName() == null ? null : statusByPiName.get(raspberryPi.getName());
+            if (status == null) {
+                return CompletableFuture.completedFuture(PiCommandResult.notSent(
+                        "reconcile processes", raspberryPi.getComsAddress(), "No status for this Pi"));
+            }
+
+            return raspberryPi.reconcileProcessesAsync(status);
+        }, deadline);
+    }
+
+    /**
+     * Forgets the acknowledged config of a Pi whenever {@code monitor} sees its
+     * status stream restart, so the next {@link #setConfigAsync(String, Duration)}
+     * resends the config to a Pi that may have rebooted and lost it.
+     */
+    public void invalidateConfigsOnRestart(PiStatusMonitor monitor) {
+        monitor.addRestartListener(this::invalidateConfigCache);
+    }
+
+    /** Forgets the acknowledged config of the Pi named {@code piName}, if any. */
+    public void invalidateConfigCache(String piName) {
+        for (RaspberryPi<P> raspberryPi : raspberryPis) {
+            if (piName.equals(raspberryPi.getName())) {
+                raspberryPi.invalidateConfigCache();
+            }
+        }
     }
 
     /**
@@ -210,6 +317,40 @@ public class PiNetwork<P extends Enum<P>> {
         return stopAllPis() && startAllPis();
     }
 
+    /**
+     * Sends {@code command} to every Pi concurrently and collects every result.
+     * Pis that have not answered by {@code deadline} count as failed.
+     */
+    private CompletableFuture<Map<RaspberryPi<P>, PiCommandResult>> fanOut(
+            Function<RaspberryPi<P>, CompletableFuture<PiCommandResult>> command, Duration deadline) {
+        var pending = new LinkedHashMap<RaspberryPi<P>, CompletableFuture<PiCommandResult>>();
+        for (var raspberryPi : raspberryPis) {
+            var timedOut = PiCommandResult.timedOut("finish command", raspberryPi.getComsAddress(), deadline);
+            pending.put(raspberryPi, command.apply(raspberryPi)
+                    .completeOnTimeout(timedOut, deadline.toMillis(), TimeUnit.MILLISECONDS));
+        }
+
+        return CompletableFuture
+                .allOf(pending.values().toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    var results = new LinkedHashMap<RaspberryPi<P>, PiCommandResult>();
+                    pending.forEach((raspberryPi, result) -> results.put(raspberryPi, result.join()));
+                    return results;
+                });
+    }
+
+    private static boolean allSucceeded(CompletableFuture<? extends Map<?, PiCommandResult>> results) {
+        boolean allSucceeded = true;
+        for (var result : results.join().values()) {
+            if (!result.isSuccess()) {
+                System.err.println(result);
+                allSucceeded = false;
+            }
+        }
+
+        return allSucceeded;
+    }
+
     /**
      * Provides access to the managed Raspberry Pis.
      *
@@ -0,0 +1,145 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends HTTP commands to one Pi without blocking the caller.
+ *
+ * <p>
+ * Every {@link RaspberryPi} owns one pipeline; all pipelines share the same
+ * {@link HttpClient}. At most {@code maxInFlight} requests to the Pi are
+ * outstanding at a time, further requests wait in FIFO order and are sent as
+ * earlier ones complete.
+ * </p>
+ */
+final class PiRequestPipeline {
+
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(5);
+
+  private final HttpClient client;
+  private final String baseAddress;
+
+  private final Object lock = new Object();
+  private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+  private int inFlight = 0;
+  private volatile int maxInFlight;
+
+  PiRequestPipeline(HttpClient client, String baseAddress, int maxInFlight) {
+    this.client = client;
+    this.baseAddress = baseAddress;
+    this.maxInFlight = maxInFlight;
+  }
+
+  void setMaxInFlight(int maxInFlight) {
+    if (maxInFlight <= 0) {
+      throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+    }
+
+    this.maxInFlight = maxInFlight;
+  }
+
+  /**
+   * Posts {@code jsonBody} to {@code endpoint} once an in-flight slot is free.
+   * The returned future never completes exceptionally; failures are reported
+   * through the {@link PiCommandResult}.
+   */
+  CompletableFuture<PiCommandResult> postJson(String command, String endpoint, String jsonBody) {
+    return postJson(command, endpoint, jsonBody.getBytes(StandardCharsets.UTF_8), false);
+  }
+
+  /**
+   * Posts an already encoded JSON body to {@code endpoint} once an in-flight
+   * slot is free.
+   *
+   * @param gzipped whether {@code body} is gzip-compressed; sent as
+   *                {@code Content-Encoding: gzip}
+   */
+  CompletableFuture<PiCommandResult> postJson(String command, String endpoint, byte[] body, boolean gzipped) {
+    var result = new CompletableFuture<PiCommandResult>();
+    Runnable send = () -> send(command, endpoint, body, gzipped, result);
+
+    boolean sendNow;
+    synchronized (lock) {
+      sendNow = inFlight < maxInFlight;
+      if (sendNow) {
+        inFlight++;
+      } else {
+        waiting.addLast(send);
+      }
+    }
+
+    if (sendNow) {
+      send.run();
+    }
+
+    return result;
+  }
+
+  private void send(String command, String endpoint, byte[] body, boolean gzipped,
+      CompletableFuture<PiCommandResult> result) {
+    long start = System.nanoTime();
+    HttpRequest request;
+    try {
+      var builder = HttpRequest
+          .newBuilder()
+          .uri(URI.create(baseAddress + endpoint))
+          .timeout(REQUEST_TIMEOUT)
+          .header("Content-Type", "application/json")
+          .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+      if (gzipped) {
+        builder.header("Content-Encoding", "gzip");
+      }
+      request = builder.build();
+    } catch (IllegalArgumentException e) {
+      result.complete(PiCommandResult.failed(command, baseAddress, e, Duration.ZERO));
+      release();
+      return;
+    }
+
+    CompletableFuture<HttpResponse<String>> sent;
+    try {
+      sent = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+    } catch (RuntimeException e) {
+      // e.g. IllegalArgumentException or SecurityException, thrown before
+      // anything is sent
+      result.complete(PiCommandResult.failed(command, baseAddress, e, Duration.ofNanos(System.nanoTime() - start)));
+      release();
+      return;
+    }
+
+    sent
+        .whenComplete((response, error) -> {
+          Duration latency = Duration.ofNanos(System.nanoTime() - start);
+          if (error != null) {
+            result.complete(PiCommandResult.failed(command, baseAddress, error, latency));
+          } else if (response.statusCode() != 200) {
+            result.complete(PiCommandResult.httpError(command, baseAddress, response.statusCode(), latency));
+          } else {
+            result.complete(PiCommandResult.ok(command, baseAddress, latency));
+          }
+
+          release();
+        });
+  }
+
+  private void release() {
+    Runnable next;
+    synchronized (lock) {
+      next = waiting.pollFirst();
+      if (next == null) {
+        inFlight--;
+      }
+    }
+
+    if (next != null) {
+      next.run();
+    }
+  }
+}
@@ -0,0 +1,234 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import autobahn.client.AutobahnClient;
+import autobahn.client.NamedCallback;
+import core4765.proto.status.PiStatusOuterClass.PiStatus;
+import edu.wpi.first.wpilibj.DriverStation;
+import pwrup.frc.core.types.DoubleRingBuffer;
+
+/**
+ * Keeps a rolling window of the {@link PiStatus} telemetry of every Pi.
+ *
+ * <p>
+ * Each Pi gets one fixed-size {@link DoubleRingBuffer} per {@link Metric} and
+ * one per CPU core, holding the newest {@code windowSize} samples. Reading a
+ * statistic does not allocate, so it is safe to do every robot loop, e.g. to
+ * correlate loop overruns with coprocessor load.
+ * </p>
+ *
+ * <p>
+ * Statistics of a Pi or core that has not reported yet are {@code NaN}.
+ * </p>
+ */
+public class PiStatusMonitor {
+
+  public enum Metric {
+    CPU_TOTAL,
+    /** The busiest core of each sample. */
+    CPU_CORE_MAX,
+    MEMORY,
+    DISK,
+    NET_IN,
+    NET_OUT,
+  }
+
+  public enum Statistic {
+    MIN,
+    MAX,
+    MEAN,
+    P95,
+  }
+
+  /** The telemetry of one Pi. Guarded by its own monitor. */
+  private static final class PiSeries {
+    private final Map<Metric, DoubleRingBuffer> metrics = new EnumMap<>(Metric.class);
+    private DoubleRingBuffer[] cores = new DoubleRingBuffer[0];
+    private long lastUpdateNanos;
+
+    PiSeries(int windowSize) {
+      for (Metric metric : Metric.values()) {
+        metrics.put(metric, new DoubleRingBuffer(windowSize));
+      }
+    }
+  }
+
+  private static final double DEFAULT_RESTART_GAP_SECONDS = 3.0;
+
+  private final int windowSize;
+  private final Map<String, PiSeries> seriesByPi = new ConcurrentHashMap<>();
+  private final List<Consumer<String>> restartListeners = new CopyOnWriteArrayList<>();
+  private double restartGapSeconds = DEFAULT_RESTART_GAP_SECONDS;
+
+  /** @param windowSize samples kept per Pi and metric */
+  public PiStatusMonitor(int windowSize) {
+    this.windowSize = windowSize;
+  }
+
+  /** Subscribes to the Pis' status topics on {@code client}. */
+  public void start(AutobahnClient client, String... piStatusTopics) {
+    var callback = NamedCallback.FromConsumer(this::onStatus);
+    for (String topic : piStatusTopics) {
+      client.subscribe(topic, callback);
+    }
+  }
+
+  /**
+   * Calls {@code listener} with the Pi's name whenever a Pi's status stream
+   * (re)starts: on its first status, and on the first status after a silence
+   * longer than the restart gap, e.g. after the Pi rebooted. Called on the
+   * Autobahn callback thread.
+   */
+  public void addRestartListener(Consumer<String> listener) {
+    restartListeners.add(listener);
+  }
+
+  /**
+   * Sets how long a Pi must be silent for its next status to count as a
+   * restart. Defaults to {@value #DEFAULT_RESTART_GAP_SECONDS} s.
+   */
+  public PiStatusMonitor withRestartGap(double restartGapSeconds) {
+    this.restartGapSeconds = restartGapSeconds;
+    return this;
+  }
+
+  /** Names of the Pis that have reported. */
+  public Set<String> getPiNames() {
+    return seriesByPi.keySet();
+  }
+
+  /**
+   * Rolling statistic of {@code metric} on the Pi named {@code piName}.
+   */
+  public double get(String piName, Metric metric, Statistic statistic) {
+    var series = seriesByPi.get(piName);
+    if (series == null) {
+      return Double.NaN;
+    }
+
+    synchronized (series) {
+      return compute(series.metrics.get(metric), statistic);
+    }
+  }
+
+  /** Rolling statistic of the usage of one CPU core. */
+  public double getCore(String piName, int core, Statistic statistic) {
+    var series = seriesByPi.get(piName);
+    if (series == null) {
+      return Double.NaN;
+    }
+
+    synchronized (series) {
+      if (core < 0 || core >= series.cores.length) {
+        return Double.NaN;
+      }
+
+      return compute(series.cores[core], statistic);
+    }
+  }
+
+  /** Number of CPU cores the Pi reports, or 0 if it has not reported. */
+  public int getCoreCount(String piName) {
+    var series = seriesByPi.get(piName);
+    if (series == null) {
+      return 0;
+    }
+
+    synchronized (series) {
+      return series.cores.length;
+    }
+  }
+
+  /** Seconds since the Pi last reported, or infinity if it never did. */
+  public double getSecondsSinceUpdate(String piName) {
+    var series = seriesByPi.get(piName);
+    if (series == null) {
+      return Double.POSITIVE_INFINITY;
+    }
+
+    synchronized (series) {
+      return (System.nanoTime() - series.lastUpdateNanos) / 1e9;
+    }
+  }
+
+  private void onStatus(byte[] message) {
+    PiStatus status;
+    try {
+      status = PiStatus.parseFrom(message);
+    } catch (InvalidProtocolBufferException e) {
+      DriverStation.reportWarning("Dropping unreadable Pi status: " + e.getMessage(), false);
+      return;
+    }
+
+    record(status);
+  }
+
+  void record(PiStatus status) {
+    boolean[] created = { false };
+    var series = seriesByPi.computeIfAbsent(status.getPiName(), name -> {
+      created[0] = true;
+      return new PiSeries(windowSize);
+    });
+
+    boolean restarted;
+    synchronized (series) {
+      restarted = created[0] || (System.nanoTime() - series.lastUpdateNanos) / 1e9 > restartGapSeconds;
+
+      int coreCount = status.getCpuUsageCoresCount();
+      if (series.cores.length != coreCount) {
+        series.cores = new DoubleRingBuffer[coreCount];
+        for (int i = 0; i < coreCount; i++) {
+          series.cores[i] = new DoubleRingBuffer(windowSize);
+        }
+      }
+
+      double coreMax = Double.NaN;
+      for (int i = 0; i < coreCount; i++) {
+        double usage = status.getCpuUsageCores(i);
+        series.cores[i].add(usage);
+        coreMax = Double.isNaN(coreMax) ? usage : Math.max(coreMax, usage);
+      }
+
+      series.metrics.get(Metric.CPU_TOTAL).add(status.getCpuUsageTotal());
+      if (coreCount > 0) {
+        series.metrics.get(Metric.CPU_CORE_MAX).add(coreMax);
+      }
+
+      series.metrics.get(Metric.MEMORY).add(status.getMemoryUsage());
+      series.metrics.get(Metric.DISK).add(status.getDiskUsage());
+      series.metrics.get(Metric.NET_IN).add(status.getNetUsageIn());
+      series.metrics.get(Metric.NET_OUT).add(status.getNetUsageOut());
+      series.lastUpdateNanos = System.nanoTime();
+    }
+
+    if (restarted) {
+      for (var listener : restartListeners) {
+        listener.accept(status.getPiName());
+      }
+    }
+  }
+
+  private static double compute(DoubleRingBuffer buffer, Statistic statistic) {
+    switch (statistic) {
+      case MIN:
+        return buffer.min();
+      case MAX:
+        return buffer.max();
+      case MEAN:
+        return buffer.mean();
+      case P95:
+        return buffer.percentile(95);
+      default:
+        throw new IllegalArgumentException("Unknown statistic: " + statistic);
+    }
+  }
+}
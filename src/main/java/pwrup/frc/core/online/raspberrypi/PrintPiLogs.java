@@ -1,25 +1,34 @@
 package pwrup.frc.core.online.raspberrypi;
 
-import java.util.function.Consumer;
-
-import com.google.protobuf.InvalidProtocolBufferException;
-
 import autobahn.client.AutobahnClient;
-import autobahn.client.NamedCallback;
-import core4765.proto.status.PiStatusOuterClass.LogMessage;
+import pwrup.frc.core.online.raspberrypi.logs.ConsoleLogSink;
+import pwrup.frc.core.online.raspberrypi.logs.PiLogPipeline;
 
 public class PrintPiLogs {
+    private static final int QUEUE_CAPACITY = 4096;
+
+    /**
+     * Prints the log lines published on {@code piLoggingTopic} to
+     * {@code System.out}. Lines are not rate limited; printing happens on a
+     * background thread, and lines arriving while {@value #QUEUE_CAPACITY} are
+     * waiting to be printed are dropped.
+     */
     public static void ToSystemOut(AutobahnClient client, String piLoggingTopic) {
-        client.subscribe(piLoggingTopic, NamedCallback.FromConsumer((byte[] message) -> {
-            LogMessage logMessage;
-            try {
-                logMessage = LogMessage.parseFrom(message);
-            } catch (InvalidProtocolBufferException e) {
-                e.printStackTrace();
-                return;
-            }
+        ToSystemOutPipeline(client, piLoggingTopic, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
 
-            System.out.println(logMessage.getPrefix() + " " + logMessage.getPiName() + ": " + logMessage.getMessage());
-        }));
+    /**
+     * Like {@link #ToSystemOut(AutobahnClient, String)}, but limits every Pi to
+     * {@code linesPerSecond} with bursts of up to {@code burst} lines, and
+     * returns the pipeline so callers can read its drop counters or stop it.
+     */
+    public static PiLogPipeline ToSystemOutPipeline(AutobahnClient client, String piLoggingTopic,
+            double linesPerSecond, double burst) {
+        var pipeline = new PiLogPipeline(QUEUE_CAPACITY)
+                .withRateLimit(linesPerSecond, burst)
+                .addSink(new ConsoleLogSink())
+                .start();
+        pipeline.subscribe(client, piLoggingTopic);
+        return pipeline;
     }
 }
@@ -0,0 +1,101 @@
+package pwrup.frc.core.online.raspberrypi;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Size-capped buffer of publishes made while {@link OptionalAutobahn} has no
+ * real client. Not thread safe; {@link OptionalAutobahn} guards it.
+ *
+ * <p>
+ * Topics using {@link OptionalAutobahn.BufferPolicy#LATEST_ONLY} keep a single
+ * entry whose payload is replaced by newer publishes; topics using
+ * {@link OptionalAutobahn.BufferPolicy#FIFO} keep every publish. When the
+ * buffer is full the oldest entry is dropped.
+ * </p>
+ */
+final class PublishBuffer {
+
+  private static final class Entry {
+    private final String topic;
+    private byte[] payload;
+
+    Entry(String topic, byte[] payload) {
+      this.topic = topic;
+      this.payload = payload;
+    }
+  }
+
+  private final int capacity;
+  private final ArrayDeque<Entry> entries;
+  /** The buffered entry of every latest-only topic. */
+  private final Map<String, Entry> latestOnlyEntries = new HashMap<>();
+
+  private long buffered = 0;
+  private long coalesced = 0;
+  private long dropped = 0;
+
+  PublishBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Publish buffer capacity must be positive: " + capacity);
+    }
+
+    this.capacity = capacity;
+    this.entries = new ArrayDeque<>(capacity);
+  }
+
+  void add(String topic, byte[] payload, OptionalAutobahn.BufferPolicy policy) {
+    buffered++;
+    if (policy == OptionalAutobahn.BufferPolicy.LATEST_ONLY) {
+      var existing = latestOnlyEntries.get(topic);
+      if (existing != null) {
+        existing.payload = payload;
+        coalesced++;
+        return;
+      }
+    }
+
+    if (entries.size() >= capacity) {
+      var oldest = entries.pollFirst();
+      latestOnlyEntries.remove(oldest.topic, oldest);
+      dropped++;
+    }
+
+    var entry = new Entry(topic, payload);
+    entries.addLast(entry);
+    if (policy == OptionalAutobahn.BufferPolicy.LATEST_ONLY) {
+      latestOnlyEntries.put(topic, entry);
+    }
+  }
+
+  /** Hands every buffered publish to {@code publisher}, oldest first, and empties the buffer. */
+  void drainTo(BiConsumer<String, byte[]> publisher) {
+    for (var entry : entries) {
+      publisher.accept(entry.topic, entry.payload);
+    }
+
+    entries.clear();
+    latestOnlyEntries.clear();
+  }
+
+  int size() {
+    return entries.size();
+  }
+
+  /** Publishes that were buffered, including those later coalesced or dropped. */
+  long getBufferedCount() {
+    return buffered;
+  }
+
+  /** Latest-only publishes that replaced an already buffered payload. */
+  long getCoalescedCount() {
+    return coalesced;
+  }
+
+  /** Entries dropped because the buffer was full. */
+  long getDroppedCount() {
+    return dropped;
+  }
+}
@@ -4,15 +4,21 @@ import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import autobahn.client.Address;
+import core4765.proto.status.PiStatusOuterClass.PiStatus;
 
-import java.io.IOException;
-import java.net.URI;
 import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 import pwrup.frc.core.constant.RaspberryPiConstants;
@@ -48,13 +54,54 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
 
   private static final Gson gson = new GsonBuilder().create();
 
+  /** Default for {@link #setMaxInFlight(int)}. */
+  public static final int DEFAULT_MAX_IN_FLIGHT = 2;
+
   private final String comsAddress;
+  /**
+   * Copy-on-write because background services (e.g. {@link PiLoadRebalancer})
+   * change it from HTTP callback threads while the robot thread iterates it.
+   */
   private final List<P> processesToRun;
 
+  @Getter(AccessLevel.NONE)
+  private final PiRequestPipeline pipeline;
+
+  /**
+   * Content hash of the last config the Pi acknowledged, if any. Guarded by
+   * {@code configSequence}.
+   */
+  @Getter(AccessLevel.NONE)
+  private volatile String acknowledgedConfigHash = null;
+  /**
+   * Number of the newest config push; only its result may set
+   * {@code acknowledgedConfigHash}. Bumped by invalidation too, so results of
+   * pushes sent before it are ignored.
+   */
+  @Getter(AccessLevel.NONE)
+  private final AtomicLong configSequence = new AtomicLong();
+  @Getter(AccessLevel.NONE)
+  private volatile boolean compressConfig = false;
+
   @Getter
   @Setter
   private double weight = 0;
 
+  /**
+   * System name the Pi reports itself as (e.g. {@code pi_name} in its status
+   * messages), or {@code null} if unknown.
+   */
+  @Getter
+  @Setter
+  private volatile String name = null;
+
+  /**
+   * Every process type ever managed on this Pi, used to tell managed processes
+   * apart from unrelated ones when reconciling.
+   */
+  @Getter(AccessLevel.NONE)
+  private final Set<String> knownProcessNames = ConcurrentHashMap.newKeySet();
+
   /**
    * Constructs a RaspberryPi instance with specified network addresses and
    * processes.
@@ -69,7 +116,11 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
     super(ipv6, portAutobahn);
 
     this.comsAddress = "http://" + ipv6 + ":" + portComs;
-    this.processesToRun = new java.util.ArrayList<>(java.util.List.of(processesToRun));
+    this.processesToRun = new CopyOnWriteArrayList<>(List.of(processesToRun));
+    for (P process : processesToRun) {
+      rememberProcessType(process);
+    }
+    this.pipeline = new PiRequestPipeline(client, comsAddress, DEFAULT_MAX_IN_FLIGHT);
   }
 
   /**
@@ -113,9 +164,27 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
   }
 
   public void addProcess(P process) {
+    rememberProcessType(process);
     processesToRun.add(process);
   }
 
+  private void rememberProcessType(P process) {
+    for (P constant : process.getDeclaringClass().getEnumConstants()) {
+      knownProcessNames.add(constant.toString());
+    }
+  }
+
+  /**
+   * Limits how many commands to this Pi may be outstanding at once. Further
+   * commands wait and are sent in order as earlier ones complete. Defaults to
+   * {@value #DEFAULT_MAX_IN_FLIGHT}.
+   *
+   * @param maxInFlight maximum number of outstanding commands, at least 1
+   */
+  public void setMaxInFlight(int maxInFlight) {
+    pipeline.setMaxInFlight(maxInFlight);
+  }
+
   /**
    * Sets the configuration for the Raspberry Pi by sending a JSON configuration
    * string
@@ -124,7 +193,10 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    * <p>
    * This method sends an HTTP POST request to the {@code /set/config} endpoint
    * with
-   * the provided JSON configuration. The request has a timeout of 5 seconds.
+   * the provided JSON configuration. The config is always sent, even if the Pi
+   * acknowledged the same config before. It blocks until the request completes
+   * or times out (5 seconds); see {@link #setConfigAsync(String)} for the
+   * non-blocking variant.
    * </p>
    * 
    * @param rawJsonConfig the JSON configuration string to be set on the Raspberry
@@ -134,36 +206,110 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    *         {@code false} otherwise
    */
   public boolean setConfig(String rawJsonConfig) {
-    Map<String, String> configPayload = Map.of("config_base64", rawJsonConfig);
-    String jsonBody = gson.toJson(configPayload);
-
-    HttpRequest request = HttpRequest
-        .newBuilder()
-        .uri(URI.create(comsAddress + "/set/config"))
-        .timeout(Duration.ofSeconds(5))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-        .build();
-
-    try {
-      HttpResponse<String> response = client.send(
-          request,
-          HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() != 200) {
-        System.err.println(
-            "Failed to set config for " +
-                comsAddress +
-                " - Status: " +
-                response.statusCode());
-        return false;
-      }
-    } catch (IOException | InterruptedException e) {
-      System.err.println("Failed to set config for " + comsAddress);
-      e.printStackTrace();
-      return false;
+    return report(setConfigAsync(rawJsonConfig).join());
+  }
+
+  /**
+   * Asynchronous variant of {@link #setConfig(String)}. The request is always
+   * sent, without blocking the calling thread.
+   *
+   * @param rawJsonConfig the JSON configuration string to be set on the Raspberry
+   *                      Pi
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   * @see #setConfigAsync(PiConfig)
+   */
+  public CompletableFuture<PiCommandResult> setConfigAsync(String rawJsonConfig) {
+    return sendConfigAsync(PiConfig.of(rawJsonConfig));
+  }
+
+  /**
+   * Sends {@code config} to the Pi unless the Pi already acknowledged a config
+   * with the same content hash, in which case the command succeeds without
+   * sending anything.
+   *
+   * <p>
+   * With {@link #setConfigCompression(boolean)} enabled the body is sent
+   * gzip-compressed. If the Pi rejects the compressed body (HTTP 400 or 415),
+   * compression is turned off for this Pi and the config is resent
+   * uncompressed.
+   * </p>
+   *
+   * <p>
+   * The acknowledged hash only reflects what this instance sent. It is
+   * forgotten through {@link #invalidateConfigCache()} when the Pi may have lost
+   * its config, which {@link PiNetwork#invalidateConfigsOnRestart} and
+   * {@link AutomaticPiNetwork} do when a Pi's status stream restarts or it is
+   * rediscovered.
+   * </p>
+   *
+   * @param config the configuration to set
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   */
+  public CompletableFuture<PiCommandResult> setConfigAsync(PiConfig config) {
+    if (config.getHash().equals(acknowledgedConfigHash)) {
+      return CompletableFuture.completedFuture(
+          PiCommandResult.skipped("set config", comsAddress, "Config unchanged"));
+    }
+
+    return sendConfigAsync(config);
+  }
+
+  /**
+   * Sends {@code config} to the Pi even if it acknowledged the same config
+   * before. Only the result of the newest push is remembered, so pushes that
+   * complete out of order cannot leave a stale acknowledged hash behind.
+   *
+   * @param config the configuration to set
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   */
+  public CompletableFuture<PiCommandResult> sendConfigAsync(PiConfig config) {
+    long sequence = configSequence.incrementAndGet();
+    CompletableFuture<PiCommandResult> result;
+    if (compressConfig) {
+      result = pipeline
+          .postJson("set config", "/set/config", config.getGzippedBody(), true)
+          .thenCompose(compressed -> {
+            if (compressed.getStatusCode() != 400 && compressed.getStatusCode() != 415) {
+              return CompletableFuture.completedFuture(compressed);
+            }
+
+            compressConfig = false;
+            return pipeline.postJson("set config", "/set/config", config.getBody(), false);
+          });
+    } else {
+      result = pipeline.postJson("set config", "/set/config", config.getBody(), false);
     }
 
-    return true;
+    return result.whenComplete((commandResult, error) -> {
+      synchronized (configSequence) {
+        if (configSequence.get() == sequence) {
+          acknowledgedConfigHash = commandResult != null && commandResult.isSuccess() ? config.getHash() : null;
+        }
+      }
+    });
+  }
+
+  /**
+   * Enables or disables gzip compression of config pushes to this Pi. Only
+   * enable this for Pis whose config endpoint accepts
+   * {@code Content-Encoding: gzip}.
+   */
+  public void setConfigCompression(boolean enabled) {
+    compressConfig = enabled;
+  }
+
+  /**
+   * Forgets which config the Pi acknowledged, so the next config push is sent
+   * even if it is unchanged.
+   */
+  public void invalidateConfigCache() {
+    synchronized (configSequence) {
+      configSequence.incrementAndGet();
+      acknowledgedConfigHash = null;
+    }
   }
 
   /**
@@ -185,7 +331,8 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    * <p>
    * This method blocks until the processes have been started or the request times
    * out
-   * (5 seconds).
+   * (5 seconds); see {@link #startProcessesAsync()} for the non-blocking
+   * variant.
    * </p>
    * 
    * @return {@code true} if all processes were successfully started (HTTP 200
@@ -194,44 +341,24 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    *         failed
    */
   public boolean startProcesses() {
-    if (processesToRun.isEmpty()) {
-      System.err.println("No processes to start for " + comsAddress);
-      return false;
-    }
-
-    Map<String, List<String>> processPayload = Map.of(
-        "process_types",
-        processesToRun.stream().map(P::toString).toList());
-    String jsonBody = gson.toJson(processPayload);
-
-    HttpRequest request = HttpRequest
-        .newBuilder()
-        .uri(URI.create(comsAddress + "/start/process"))
-        .timeout(Duration.ofSeconds(5))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-        .build();
-
-    try {
-      HttpResponse<String> response = client.send(
-          request,
-          HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() != 200) {
-        System.err.println(
-            "Failed to start processes for " +
-                comsAddress +
-                " - Status: " +
-                response.statusCode());
-        return false;
-      }
-    } catch (IOException | InterruptedException e) {
-      System.err.println("Failed to start processes for " + comsAddress);
-      e.printStackTrace();
+    return report(startProcessesAsync().join());
+  }
 
-      return false;
+  /**
+   * Asynchronous variant of {@link #startProcesses()}. The request is sent
+   * without blocking the calling thread.
+   *
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally. The command fails without being sent if
+   *         there are no processes to start.
+   */
+  public CompletableFuture<PiCommandResult> startProcessesAsync() {
+    if (processesToRun.isEmpty()) {
+      return CompletableFuture.completedFuture(
+          PiCommandResult.notSent("start processes", comsAddress, "No processes to start"));
     }
 
-    return true;
+    return pipeline.postJson("start processes", "/start/process", processTypesJson(processesToRun));
   }
 
   /**
@@ -246,7 +373,8 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    * <p>
    * This method blocks until the processes have been stopped or the request times
    * out
-   * (5 seconds).
+   * (5 seconds); see {@link #stopProcessesAsync()} for the non-blocking
+   * variant.
    * </p>
    * 
    * @return {@code true} if all processes were successfully stopped (HTTP 200
@@ -254,38 +382,18 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    *         {@code false} otherwise
    */
   public boolean stopProcesses() {
-    Map<String, List<String>> processPayload = Map.of(
-        "process_types",
-        processesToRun.stream().map(P::toString).toList());
-    String jsonBody = gson.toJson(processPayload);
-
-    HttpRequest request = HttpRequest
-        .newBuilder()
-        .uri(URI.create(comsAddress + "/stop/process"))
-        .timeout(Duration.ofSeconds(5))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-        .build();
-
-    try {
-      HttpResponse<String> response = client.send(
-          request,
-          HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() != 200) {
-        System.err.println(
-            "Failed to stop processes for " +
-                comsAddress +
-                " - Status: " +
-                response.statusCode());
-        return false;
-      }
-    } catch (IOException | InterruptedException e) {
-      System.err.println("Failed to stop processes for " + comsAddress);
-      e.printStackTrace();
-      return false;
-    }
+    return report(stopProcessesAsync().join());
+  }
 
-    return true;
+  /**
+   * Asynchronous variant of {@link #stopProcesses()}. The request is sent
+   * without blocking the calling thread.
+   *
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   */
+  public CompletableFuture<PiCommandResult> stopProcessesAsync() {
+    return pipeline.postJson("stop processes", "/stop/process", processTypesJson(processesToRun));
   }
 
   /**
@@ -294,14 +402,15 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    * 
    * <p>
    * This method sends an HTTP POST request to the {@code /stop/process} endpoint
-   * to stop the specified process. If successful, the process is removed from the
-   * internal list of processes managed by this instance.
+   * to stop the specified process. The process is removed from the internal
+   * list of processes managed by this instance before the request is sent.
    * </p>
    * 
    * <p>
    * This method blocks until the process has been stopped or the request times
    * out
-   * (5 seconds).
+   * (5 seconds); see {@link #stopProcessAsync(Enum)} for the non-blocking
+   * variant.
    * </p>
    * 
    * @param process the process enum value to stop
@@ -310,40 +419,134 @@ public class RaspberryPi<P extends Enum<P>> extends Address {
    *         {@code false} otherwise
    */
   public boolean stopProcess(P process) {
+    return report(stopProcessAsync(process).join());
+  }
+
+  /**
+   * Asynchronous variant of {@link #stopProcess(Enum)}. The process is removed
+   * from the list of processes to run immediately; the request is sent without
+   * blocking the calling thread.
+   *
+   * @param process the process enum value to stop
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   */
+  public CompletableFuture<PiCommandResult> stopProcessAsync(P process) {
     processesToRun.remove(process);
+    return pipeline.postJson("stop process " + process, "/stop/process", processTypesJson(List.of(process)));
+  }
+
+  /**
+   * Adds {@code process} to the list of processes to run, unless it is already
+   * there, and starts only that process, leaving the Pi's other processes
+   * alone. The request is sent without blocking the calling thread.
+   *
+   * @param process the process enum value to start
+   * @return a future completing with the result of the command; it never
+   *         completes exceptionally
+   */
+  public CompletableFuture<PiCommandResult> startProcessAsync(P process) {
+    rememberProcessType(process);
+    if (!processesToRun.contains(process)) {
+      processesToRun.add(process);
+    }
+
+    return pipeline.postJson("start process " + process, "/start/process", processTypesJson(List.of(process)));
+  }
+
+  /**
+   * Brings the processes running on the Pi in line with
+   * {@link #getProcessesToRun()} by only starting the processes that are
+   * missing and stopping managed processes that should no longer run.
+   * Processes that are already running are left alone.
+   *
+   * <p>
+   * Only names of the process enum count as managed processes; anything else in
+   * {@code runningProcessNames} is ignored. Stops are sent before starts.
+   * </p>
+   *
+   * @param runningProcessNames names of the processes currently running on the
+   *                            Pi
+   * @return a future completing with the first failed command, or the last
+   *         command if all succeeded; it never completes exceptionally. If the
+   *         Pi already matches, nothing is sent and the result is a success.
+   */
+  public CompletableFuture<PiCommandResult> reconcileProcessesAsync(Collection<String> runningProcessNames) {
+    Set<String> running = new HashSet<>(runningProcessNames);
+    running.retainAll(knownProcessNames);
+
+    List<String> toStart = new ArrayList<>();
+    Set<String> desired = new HashSet<>();
+    for (P process : processesToRun) {
+      String processName = process.toString();
+      if (desired.add(processName) && !running.contains(processName)) {
+        toStart.add(processName);
+      }
+    }
+
+    List<String> toStop = new ArrayList<>(running);
+    toStop.removeAll(desired);
+
+    if (toStart.isEmpty() && toStop.isEmpty()) {
+      return CompletableFuture.completedFuture(
+          PiCommandResult.skipped("reconcile processes", comsAddress, "Processes already match"));
+    }
+
+    CompletableFuture<PiCommandResult> stopped = toStop.isEmpty()
+        ? CompletableFuture.completedFuture(null)
+        : pipeline.postJson("stop processes " + toStop, "/stop/process", processNamesJson(toStop));
+
+    return stopped.thenCompose(stopResult -> {
+      if (toStart.isEmpty()) {
+        return CompletableFuture.completedFuture(stopResult);
+      }
+
+      return pipeline
+          .postJson("start processes " + toStart, "/start/process", processNamesJson(toStart))
+          .thenApply(startResult -> stopResult != null && !stopResult.isSuccess() ? stopResult : startResult);
+    });
+  }
+
+  /**
+   * Reconciles against the running processes reported in a {@link PiStatus}
+   * message.
+   *
+   * <p>
+   * Only {@code running_processes} is used, as it lists every process the Pi
+   * runs. The top 10 processes by CPU usage are not a substitute: an idle
+   * process missing from them would be started again. If the status does not
+   * report its running processes, nothing is sent.
+   * </p>
+   *
+   * @param status the latest status message of this Pi
+   * @see #reconcileProcessesAsync(Collection)
+   */
+  public CompletableFuture<PiCommandResult> reconcileProcessesAsync(PiStatus status) {
+    if (!status.hasRunningProcesses()) {
+      return CompletableFuture.completedFuture(PiCommandResult.notSent(
+          "reconcile processes", comsAddress, "Status does not report running processes"));
+    }
+
+    return reconcileProcessesAsync(status.getRunningProcesses().getNamesList());
+  }
+
+  private static String processNamesJson(List<String> processNames) {
+    return gson.toJson(Map.of("process_types", processNames));
+  }
+
+  private static String processTypesJson(List<? extends Enum<?>> processes) {
     Map<String, List<String>> processPayload = Map.of(
         "process_types",
-        List.of(process.toString()));
-    String jsonBody = gson.toJson(processPayload);
-
-    HttpRequest request = HttpRequest
-        .newBuilder()
-        .uri(URI.create(comsAddress + "/stop/process"))
-        .timeout(Duration.ofSeconds(5))
-        .header("Content-Type", "application/json")
-        .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-        .build();
-
-    try {
-      HttpResponse<String> response = client.send(
-          request,
-          HttpResponse.BodyHandlers.ofString());
-      if (response.statusCode() != 200) {
-        System.err.println(
-            "Failed to stop process " +
-                process +
-                " for " +
-                comsAddress +
-                " - Status: " +
-                response.statusCode());
-        return false;
-      }
-    } catch (IOException | InterruptedException e) {
-      System.err.println("Failed to stop process " + process + " for " + comsAddress);
-      e.printStackTrace();
-      return false;
+        processes.stream().map(Enum::toString).toList());
+    return gson.toJson(processPayload);
+  }
+
+  /** Logs failed results of the blocking commands, as callers expect. */
+  private static boolean report(PiCommandResult result) {
+    if (!result.isSuccess()) {
+      System.err.println(result);
     }
 
-    return true;
+    return result.isSuccess();
   }
 }
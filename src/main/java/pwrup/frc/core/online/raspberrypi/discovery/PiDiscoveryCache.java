@@ -0,0 +1,178 @@
+package pwrup.frc.core.online.raspberrypi.discovery;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Small JSON file remembering the Pis found by the last discovery.
+ *
+ * <p>
+ * Most reboots find the same Pis at the same addresses, so the robot can
+ * connect to the cached Pis right away and let mDNS validate the cache in the
+ * background. A missing or unreadable cache file is treated as empty.
+ * </p>
+ */
+public class PiDiscoveryCache {
+
+  private static final int VERSION = 1;
+  private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+  /** On-disk form of a {@link PiInfo}. Ports are null when not advertised. */
+  private static class Entry {
+    String name;
+    String hostname;
+    String hostnameLocal;
+    Integer autobahnPort;
+    Integer watchdogPort;
+    long lastSeenMillis;
+  }
+
+  private static class CacheFile {
+    int version = VERSION;
+    List<Entry> pis = new ArrayList<>();
+  }
+
+  private final Path file;
+  /** Cached entries keyed by Pi name. */
+  private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+  public PiDiscoveryCache(Path file) {
+    this.file = file;
+  }
+
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Reads the cache file, replacing anything held in memory.
+   *
+   * @param maxAge entries not seen for longer than this are ignored
+   * @return the cached Pis, most recently seen first
+   */
+  public synchronized List<PiInfo> load(Duration maxAge) {
+    entries.clear();
+    if (!Files.exists(file)) {
+      return List.of();
+    }
+
+    CacheFile cache;
+    try {
+      cache = gson.fromJson(Files.readString(file, StandardCharsets.UTF_8), CacheFile.class);
+    } catch (IOException | JsonParseException e) {
+      DriverStation.reportWarning("Ignoring unreadable Pi discovery cache " + file + ": " + e.getMessage(), false);
+      return List.of();
+    }
+
+    if (cache == null || cache.version != VERSION || cache.pis == null) {
+      return List.of();
+    }
+
+    long oldest = System.currentTimeMillis() - maxAge.toMillis();
+    cache.pis
+        .stream()
+        .filter(e -> e.name != null && e.hostname != null && e.lastSeenMillis >= oldest)
+        .sorted((a, b) -> Long.compare(b.lastSeenMillis, a.lastSeenMillis))
+        .forEach(e -> entries.putIfAbsent(e.name, e));
+
+    return getPis();
+  }
+
+  /** The Pis currently held by the cache. */
+  public synchronized List<PiInfo> getPis() {
+    var pis = new ArrayList<PiInfo>(entries.size());
+    for (var entry : entries.values()) {
+      pis.add(toPiInfo(entry));
+    }
+
+    return pis;
+  }
+
+  /** The cached entry for the Pi named {@code name}, if any. */
+  public synchronized Optional<PiInfo> get(String name) {
+    return Optional.ofNullable(entries.get(name)).map(PiDiscoveryCache::toPiInfo);
+  }
+
+  /**
+   * Records that {@code pi} was just seen, replacing any entry with the same
+   * name. Call {@link #save()} to write the change to disk.
+   *
+   * @return true if the entry is new or its address or ports changed
+   */
+  public synchronized boolean update(PiInfo pi) {
+    var previous = entries.get(pi.getName());
+    var entry = toEntry(pi);
+    entries.put(pi.getName(), entry);
+    return previous == null || !toPiInfo(previous).equals(pi);
+  }
+
+  /** Records every Pi in {@code pis} as seen now. */
+  public synchronized void updateAll(Collection<PiInfo> pis) {
+    for (var pi : pis) {
+      update(pi);
+    }
+  }
+
+  /** Forgets the Pi named {@code name}. */
+  public synchronized void remove(String name) {
+    entries.remove(name);
+  }
+
+  /**
+   * Writes the cache to disk. The file is replaced atomically where the file
+   * system allows it, so a brown-out mid-write never leaves a truncated cache.
+   */
+  public synchronized void save() {
+    var cache = new CacheFile();
+    cache.pis.addAll(entries.values());
+
+    try {
+      var parent = file.toAbsolutePath().getParent();
+      if (parent != null) {
+        Files.createDirectories(parent);
+      }
+
+      var temp = file.resolveSibling(file.getFileName() + ".tmp");
+      Files.writeString(temp, gson.toJson(cache), StandardCharsets.UTF_8);
+      try {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } catch (IOException e) {
+      DriverStation.reportWarning("Failed to write Pi discovery cache " + file + ": " + e.getMessage(), false);
+    }
+  }
+
+  private static Entry toEntry(PiInfo pi) {
+    var entry = new Entry();
+    entry.name = pi.getName();
+    entry.hostname = pi.getHostname();
+    entry.hostnameLocal = pi.getHostnameLocal();
+    entry.autobahnPort = pi.getAutobahnPort().orElse(null);
+    entry.watchdogPort = pi.getWatchdogPort().orElse(null);
+    entry.lastSeenMillis = System.currentTimeMillis();
+    return entry;
+  }
+
+  private static PiInfo toPiInfo(Entry entry) {
+    return new PiInfo(entry.name, entry.hostname, entry.hostnameLocal, Optional.ofNullable(entry.autobahnPort),
+        Optional.ofNullable(entry.watchdogPort));
+  }
+}
@@ -0,0 +1,162 @@
+package pwrup.frc.core.online.raspberrypi.discovery;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.jmdns.JmDNS;
+import javax.jmdns.ServiceEvent;
+import javax.jmdns.ServiceListener;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * Long-lived mDNS discovery of watchdog Pis.
+ *
+ * <p>
+ * Unlike {@link PiDiscoveryUtil#discover(int)}, which opens a JmDNS instance,
+ * sleeps for the whole timeout and closes it again, the service keeps one
+ * JmDNS instance running and maintains the set of Pis currently advertising.
+ * Listeners are told about every Pi that appears or goes away, and
+ * {@link #awaitPis(int, Duration)} returns as soon as the expected number of
+ * Pis has been seen instead of always waiting for the full timeout.
+ * </p>
+ */
+public class PiDiscoveryService implements AutoCloseable {
+
+  /** Receives discovery events. Called on a JmDNS thread. */
+  public interface Listener {
+    void onPiAdded(PiInfo pi);
+
+    default void onPiRemoved(PiInfo pi) {
+    }
+  }
+
+  private final JmDNS jmdns;
+  /** Resolved Pis keyed by mDNS service name, so removals can be mapped back. */
+  private final Map<String, PiInfo> pisByServiceName = new ConcurrentHashMap<>();
+  private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+  private final Object changed = new Object();
+
+  private final ServiceListener serviceListener = new ServiceListener() {
+    @Override
+    public void serviceAdded(ServiceEvent event) {
+      // trigger resolution
+      jmdns.requestServiceInfo(event.getType(), event.getName(), 1000);
+    }
+
+    @Override
+    public void serviceRemoved(ServiceEvent event) {
+      var pi = pisByServiceName.remove(event.getName());
+      if (pi != null) {
+        DriverStation.reportWarning("Pi went away: " + pi, false);
+        notifyRemoved(pi);
+      }
+    }
+
+    @Override
+    public void serviceResolved(ServiceEvent event) {
+      var maybePi = PiDiscoveryUtil.parsePiInfo(event.getInfo());
+      if (maybePi.isEmpty()) {
+        return;
+      }
+
+      var pi = maybePi.get();
+      var previous = pisByServiceName.put(event.getName(), pi);
+      if (pi.equals(previous)) {
+        return;
+      }
+
+      if (previous != null) {
+        notifyRemoved(previous);
+      }
+
+      notifyAdded(pi);
+    }
+  };
+
+  private PiDiscoveryService(JmDNS jmdns) {
+    this.jmdns = jmdns;
+  }
+
+  /** Starts browsing for Pis on the local host's interface. */
+  public static PiDiscoveryService start() throws IOException {
+    var service = new PiDiscoveryService(JmDNS.create(InetAddress.getLocalHost()));
+    service.jmdns.addServiceListener(PiDiscoveryUtil.SERVICE_TYPE, service.serviceListener);
+    return service;
+  }
+
+  /**
+   * Adds a listener. It is immediately told about every Pi already known, so
+   * it does not miss Pis discovered before it was added.
+   */
+  public void addListener(Listener listener) {
+    listeners.add(listener);
+    for (var pi : pisByServiceName.values()) {
+      listener.onPiAdded(pi);
+    }
+  }
+
+  public void removeListener(Listener listener) {
+    listeners.remove(listener);
+  }
+
+  /** A snapshot of the Pis currently advertising. */
+  public List<PiInfo> getPis() {
+    return new ArrayList<>(pisByServiceName.values());
+  }
+
+  /**
+   * Waits until at least {@code expectedCount} Pis are known or
+   * {@code deadline} has passed, whichever comes first.
+   *
+   * @return the Pis known when the wait ended; may hold fewer than
+   *         {@code expectedCount} if the deadline passed
+   */
+  public List<PiInfo> awaitPis(int expectedCount, Duration deadline) throws InterruptedException {
+    long end = System.nanoTime() + deadline.toNanos();
+    synchronized (changed) {
+      while (pisByServiceName.size() < expectedCount) {
+        long remainingMs = (end - System.nanoTime()) / 1_000_000;
+        if (remainingMs <= 0) {
+          break;
+        }
+
+        changed.wait(remainingMs);
+      }
+    }
+
+    return getPis();
+  }
+
+  @Override
+  public void close() throws IOException {
+    jmdns.removeServiceListener(PiDiscoveryUtil.SERVICE_TYPE, serviceListener);
+    jmdns.close();
+  }
+
+  private void notifyAdded(PiInfo pi) {
+    synchronized (changed) {
+      changed.notifyAll();
+    }
+
+    for (var listener : listeners) {
+      listener.onPiAdded(pi);
+    }
+  }
+
+  private void notifyRemoved(PiInfo pi) {
+    synchronized (changed) {
+      changed.notifyAll();
+    }
+
+    for (var listener : listeners) {
+      listener.onPiRemoved(pi);
+    }
+  }
+}
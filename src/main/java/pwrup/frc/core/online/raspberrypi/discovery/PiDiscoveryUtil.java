@@ -16,7 +16,7 @@ import javax.jmdns.ServiceListener;
 
 public class PiDiscoveryUtil {
 
-  private static final String SERVICE_TYPE = "_watchdog._udp.local.";
+  static final String SERVICE_TYPE = "_watchdog._udp.local.";
   private static HashSet foundRaspberryPiSet = new HashSet<>();
 
   /**
@@ -63,32 +63,12 @@ public class PiDiscoveryUtil {
 
         @Override
         public void serviceResolved(ServiceEvent event) {
-          ServiceInfo info = event.getInfo();
-          var props = getServicePropertiesRaw(info);
-
-          // Get hostname with fallbacks: property -> server -> first host address
-          String hostname = props.get("hostname");
-          if (hostname == null || hostname.isEmpty()) {
-            hostname = info.getServer();
-          }
-
-          if (hostname == null || hostname.isEmpty()) {
-            var hostAddresses = info.getHostAddresses();
-            if (hostAddresses != null && hostAddresses.length > 0) {
-              hostname = hostAddresses[0];
-            }
-          }
-
-          if (hostname == null || hostname.isEmpty() || props.get("system_name").contains("null")) {
+          var maybePi = parsePiInfo(event.getInfo());
+          if (maybePi.isEmpty()) {
             return;
           }
 
-          var pi = new PiInfo(props.get("system_name"), hostname, props.get("hostname_local"),
-              props.get("autobahn_port") != null ? Optional.of(Integer.parseInt(props.get("autobahn_port")))
-                  : Optional.empty(),
-              props.get("watchdog_port") != null ? Optional.of(Integer.parseInt(props.get("watchdog_port")))
-                  : Optional.empty());
-
+          var pi = maybePi.get();
           if (foundRaspberryPiSet.contains(pi)) {
             return;
           }
@@ -96,11 +76,7 @@ public class PiDiscoveryUtil {
           foundRaspberryPiSet.add(pi);
           found.add(pi);
 
-          System.out.println(new PiInfo(props.get("system_name"), hostname, props.get("hostname_local"),
-              props.get("autobahn_port") != null ? Optional.of(Integer.parseInt(props.get("autobahn_port")))
-                  : Optional.empty(),
-              props.get("watchdog_port") != null ? Optional.of(Integer.parseInt(props.get("watchdog_port")))
-                  : Optional.empty()));
+          System.out.println(pi);
         }
       };
 
@@ -113,6 +89,38 @@ public class PiDiscoveryUtil {
     return found;
   }
 
+  /**
+   * Builds a {@link PiInfo} from a resolved watchdog service, or returns empty
+   * if the service does not describe a usable Pi.
+   */
+  static Optional<PiInfo> parsePiInfo(ServiceInfo info) {
+    var props = getServicePropertiesRaw(info);
+
+    // Get hostname with fallbacks: property -> server -> first host address
+    String hostname = props.get("hostname");
+    if (hostname == null || hostname.isEmpty()) {
+      hostname = info.getServer();
+    }
+
+    if (hostname == null || hostname.isEmpty()) {
+      var hostAddresses = info.getHostAddresses();
+      if (hostAddresses != null && hostAddresses.length > 0) {
+        hostname = hostAddresses[0];
+      }
+    }
+
+    String systemName = props.get("system_name");
+    if (hostname == null || hostname.isEmpty() || systemName == null || systemName.contains("null")) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new PiInfo(systemName, hostname, props.get("hostname_local"),
+        props.get("autobahn_port") != null ? Optional.of(Integer.parseInt(props.get("autobahn_port")))
+            : Optional.empty(),
+        props.get("watchdog_port") != null ? Optional.of(Integer.parseInt(props.get("watchdog_port")))
+            : Optional.empty()));
+  }
+
   private static Map<String, String> getServicePropertiesRaw(ServiceInfo info) {
     Map<String, String> props = new HashMap<>();
     for (String key : Collections.list(info.getPropertyNames())) {
@@ -0,0 +1,19 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import java.util.List;
+
+/** Prints Pi log lines to {@code System.out}, one print per batch. */
+public class ConsoleLogSink implements PiLogSink {
+
+  private final StringBuilder text = new StringBuilder();
+
+  @Override
+  public void write(List<PiLogLine> batch) {
+    text.setLength(0);
+    for (var line : batch) {
+      text.append(line).append(System.lineSeparator());
+    }
+
+    System.out.print(text);
+  }
+}
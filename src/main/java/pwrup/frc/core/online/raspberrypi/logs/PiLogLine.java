@@ -0,0 +1,23 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/** One decoded log line of a Pi. */
+@AllArgsConstructor
+@Getter
+public class PiLogLine {
+
+  private final String piName;
+  private final String prefix;
+  private final String message;
+  private final String color;
+  /** When the robot received the line, in milliseconds since the epoch. */
+  private final long receivedMillis;
+
+  /** The line as printed to the console: {@code "<prefix> <pi>: <message>"}. */
+  @Override
+  public String toString() {
+    return prefix + " " + piName + ": " + message;
+  }
+}
@@ -0,0 +1,275 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+
+import autobahn.client.AutobahnClient;
+import autobahn.client.NamedCallback;
+import core4765.proto.status.PiStatusOuterClass.LogMessage;
+
+/**
+ * Moves Pi log lines from the Autobahn callback to {@link PiLogSink}s without
+ * blocking the callback.
+ *
+ * <p>
+ * The callback only decodes the {@link LogMessage}, applies the Pi's rate limit
+ * and pushes the line into a bounded lock-free queue. A daemon thread drains
+ * the queue in batches and hands each batch to every sink, so slow console or
+ * file I/O never stalls the websocket thread.
+ * </p>
+ *
+ * <p>
+ * Lines are dropped, and counted per Pi, when the Pi exceeds its rate limit
+ * (a token bucket) or the queue is full.
+ * </p>
+ *
+ * <p>
+ * A pipeline is single use: {@link #stop()} closes the sinks, after which it
+ * cannot be started again and rejects new lines.
+ * </p>
+ */
+public class PiLogPipeline {
+
+  private static final int DEFAULT_BATCH_SIZE = 256;
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+  /** Token bucket of one Pi. */
+  private static final class RateLimit {
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    RateLimit(double burst) {
+      this.tokens = burst;
+    }
+  }
+
+  private final int capacity;
+  private final ConcurrentLinkedQueue<PiLogLine> queue = new ConcurrentLinkedQueue<>();
+  private final AtomicInteger queued = new AtomicInteger();
+  private final List<PiLogSink> sinks = new CopyOnWriteArrayList<>();
+  private final Map<String, RateLimit> rateLimits = new ConcurrentHashMap<>();
+  private final Map<String, AtomicLong> droppedByPi = new ConcurrentHashMap<>();
+  private final AtomicLong dropped = new AtomicLong();
+
+  private double linesPerSecond = Double.POSITIVE_INFINITY;
+  private double burst = Double.POSITIVE_INFINITY;
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  private volatile Thread drainThread = null;
+  private volatile boolean running = false;
+  private volatile boolean stopped = false;
+  private AutobahnClient client = null;
+  private String piLoggingTopic = null;
+  private NamedCallback callback = null;
+
+  /** @param capacity lines the queue holds before new lines are dropped */
+  public PiLogPipeline(int capacity) {
+    this.capacity = capacity;
+  }
+
+  public PiLogPipeline addSink(PiLogSink sink) {
+    sinks.add(sink);
+    return this;
+  }
+
+  /**
+   * Limits every Pi to {@code linesPerSecond} on average, allowing bursts of up
+   * to {@code burst} lines. Must be called before {@link #start()}.
+   */
+  public PiLogPipeline withRateLimit(double linesPerSecond, double burst) {
+    this.linesPerSecond = linesPerSecond;
+    this.burst = burst;
+    return this;
+  }
+
+  /** Maximum lines handed to the sinks at once. */
+  public PiLogPipeline withBatchSize(int batchSize) {
+    this.batchSize = batchSize;
+    return this;
+  }
+
+  /**
+   * Starts the drain thread.
+   *
+   * @throws IllegalStateException if the pipeline was stopped
+   */
+  public synchronized PiLogPipeline start() {
+    if (stopped) {
+      throw new IllegalStateException("PiLogPipeline cannot be restarted after stop()");
+    }
+
+    if (!running) {
+      running = true;
+      var thread = new Thread(this::drainLoop, "PiLogPipeline");
+      thread.setDaemon(true);
+      drainThread = thread;
+      thread.start();
+    }
+
+    return this;
+  }
+
+  /**
+   * Unsubscribes from the logging topic and stops the drain thread after it has
+   * written what is queued, then closes the sinks. Lines offered afterwards are
+   * dropped.
+   */
+  public synchronized void stop() throws InterruptedException {
+    if (stopped) {
+      return;
+    }
+
+    stopped = true;
+    if (client != null) {
+      client.unsubscribe(piLoggingTopic, callback);
+      client = null;
+      callback = null;
+    }
+
+    if (!running) {
+      closeSinks();
+      return;
+    }
+
+    running = false;
+    LockSupport.unpark(drainThread);
+    drainThread.join();
+    drainThread = null;
+  }
+
+  /** Feeds the log lines published on {@code piLoggingTopic} into the pipeline. */
+  public synchronized void subscribe(AutobahnClient client, String piLoggingTopic) {
+    this.client = client;
+    this.piLoggingTopic = piLoggingTopic;
+    this.callback = NamedCallback.FromConsumer(this::onMessage);
+    client.subscribe(piLoggingTopic, callback);
+  }
+
+  /**
+   * Queues a line unless the pipeline was stopped, its Pi is over its rate
+   * limit or the queue is full.
+   *
+   * @return whether the line was queued
+   */
+  public boolean offer(PiLogLine line) {
+    if (stopped || !tryAcquire(line.getPiName())) {
+      countDrop(line.getPiName());
+      return false;
+    }
+
+    if (queued.incrementAndGet() > capacity) {
+      queued.decrementAndGet();
+      countDrop(line.getPiName());
+      return false;
+    }
+
+    queue.offer(line);
+    var thread = drainThread;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+
+    return true;
+  }
+
+  /** Lines of the Pi named {@code piName} that were dropped. */
+  public long getDroppedCount(String piName) {
+    var count = droppedByPi.get(piName);
+    return count == null ? 0 : count.get();
+  }
+
+  /** Lines dropped over all Pis. */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  /** Lines waiting to be written. */
+  public int getQueuedCount() {
+    return queued.get();
+  }
+
+  private void onMessage(byte[] message) {
+    LogMessage logMessage;
+    try {
+      logMessage = LogMessage.parseFrom(message);
+    } catch (InvalidProtocolBufferException e) {
+      e.printStackTrace();
+      return;
+    }
+
+    offer(new PiLogLine(logMessage.getPiName(), logMessage.getPrefix(), logMessage.getMessage(),
+        logMessage.getColor(), System.currentTimeMillis()));
+  }
+
+  private boolean tryAcquire(String piName) {
+    if (Double.isInfinite(linesPerSecond)) {
+      return true;
+    }
+
+    var limit = rateLimits.computeIfAbsent(piName, name -> new RateLimit(burst));
+    synchronized (limit) {
+      long now = System.nanoTime();
+      limit.tokens = Math.min(burst, limit.tokens + (now - limit.lastRefillNanos) / 1e9 * linesPerSecond);
+      limit.lastRefillNanos = now;
+      if (limit.tokens < 1) {
+        return false;
+      }
+
+      limit.tokens--;
+      return true;
+    }
+  }
+
+  private void countDrop(String piName) {
+    dropped.incrementAndGet();
+    droppedByPi.computeIfAbsent(piName, name -> new AtomicLong()).incrementAndGet();
+  }
+
+  private void drainLoop() {
+    var batch = new ArrayList<PiLogLine>(batchSize);
+    while (running || !queue.isEmpty()) {
+      PiLogLine line;
+      while (batch.size() < batchSize && (line = queue.poll()) != null) {
+        batch.add(line);
+      }
+
+      if (batch.isEmpty()) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+        continue;
+      }
+
+      queued.addAndGet(-batch.size());
+      for (var sink : sinks) {
+        try {
+          sink.write(batch);
+        } catch (IOException | RuntimeException e) {
+          System.err.println("Pi log sink " + sink.getClass().getSimpleName() + " failed: " + e.getMessage());
+        }
+      }
+
+      batch.clear();
+    }
+
+    closeSinks();
+  }
+
+  private void closeSinks() {
+    for (var sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        System.err.println("Failed to close Pi log sink " + sink.getClass().getSimpleName() + ": " + e.getMessage());
+      }
+    }
+  }
+}
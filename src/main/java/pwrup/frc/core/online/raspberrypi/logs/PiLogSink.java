@@ -0,0 +1,16 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination of Pi log lines. Called only from the {@link PiLogPipeline}'s
+ * drain thread, one batch at a time.
+ */
+public interface PiLogSink {
+
+  void write(List<PiLogLine> batch) throws IOException;
+
+  default void close() throws IOException {
+  }
+}
@@ -0,0 +1,134 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends Pi log lines to a file, rotating it when it grows too large.
+ *
+ * <p>
+ * Lines are encoded into a reused direct buffer and written with one channel
+ * write per batch (or per full buffer). When the file exceeds
+ * {@code maxFileBytes} it is renamed to {@code <file>.1}, older files shift to
+ * {@code <file>.2} and so on, and the oldest beyond {@code maxFiles} is
+ * deleted.
+ * </p>
+ */
+public class RotatingFileLogSink implements PiLogSink {
+
+  private static final int BUFFER_BYTES = 64 * 1024;
+
+  private final Path file;
+  private final long maxFileBytes;
+  private final int maxFiles;
+  private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+  private final StringBuilder text = new StringBuilder();
+
+  private FileChannel channel;
+  private long fileBytes;
+
+  /**
+   * @param file         the file to write
+   * @param maxFileBytes size at which the file is rotated
+   * @param maxFiles     rotated files kept besides the current one
+   */
+  public RotatingFileLogSink(Path file, long maxFileBytes, int maxFiles) throws IOException {
+    this.file = file;
+    this.maxFileBytes = maxFileBytes;
+    this.maxFiles = maxFiles;
+
+    var parent = file.toAbsolutePath().getParent();
+    if (parent != null) {
+      Files.createDirectories(parent);
+    }
+
+    open();
+  }
+
+  @Override
+  public void write(List<PiLogLine> batch) throws IOException {
+    text.setLength(0);
+    for (var line : batch) {
+      text
+          .append(line.getReceivedMillis())
+          .append(' ')
+          .append(line)
+          .append('\n');
+    }
+
+    var chars = CharBuffer.wrap(text);
+    encoder.reset();
+    while (true) {
+      CoderResult result = encoder.encode(chars, buffer, true);
+      if (result.isOverflow()) {
+        flushBuffer();
+        continue;
+      }
+
+      if (result.isError()) {
+        result.throwException();
+      }
+
+      break;
+    }
+
+    flushBuffer();
+    if (fileBytes >= maxFileBytes) {
+      rotate();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      fileBytes += channel.write(buffer);
+    }
+
+    buffer.clear();
+  }
+
+  private void open() throws IOException {
+    channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.APPEND);
+    fileBytes = channel.size();
+  }
+
+  private void rotate() throws IOException {
+    channel.close();
+
+    Files.deleteIfExists(rotated(maxFiles));
+    for (int i = maxFiles - 1; i >= 1; i--) {
+      if (Files.exists(rotated(i))) {
+        Files.move(rotated(i), rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+
+    if (maxFiles > 0) {
+      Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+    } else {
+      Files.deleteIfExists(file);
+    }
+
+    open();
+  }
+
+  private Path rotated(int index) {
+    return file.resolveSibling(file.getFileName() + "." + index);
+  }
+}
@@ -0,0 +1,53 @@
+package pwrup.frc.core.online.raspberrypi.logs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Keeps the last lines of every Pi in memory, e.g. for a dashboard. */
+public class TailLogSink implements PiLogSink {
+
+  private final PiLogLine[] lines;
+  private int next = 0;
+  private int size = 0;
+
+  /** @param capacity number of lines kept */
+  public TailLogSink(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+
+    this.lines = new PiLogLine[capacity];
+  }
+
+  @Override
+  public synchronized void write(List<PiLogLine> batch) {
+    for (var line : batch) {
+      lines[next] = line;
+      next = (next + 1) % lines.length;
+      size = Math.min(size + 1, lines.length);
+    }
+  }
+
+  /** The lines kept, oldest first. */
+  public synchronized List<PiLogLine> getTail() {
+    var tail = new ArrayList<PiLogLine>(size);
+    for (int i = 0; i < size; i++) {
+      tail.add(lines[(next - size + i + lines.length) % lines.length]);
+    }
+
+    return tail;
+  }
+
+  /** The last {@code count} lines kept of the Pi named {@code piName}, oldest first. */
+  public synchronized List<PiLogLine> getTail(String piName, int count) {
+    var tail = new ArrayList<PiLogLine>();
+    for (int i = size - 1; i >= 0 && tail.size() < count; i--) {
+      var line = lines[(next - size + i + lines.length) % lines.length];
+      if (piName.equals(line.getPiName())) {
+        tail.add(0, line);
+      }
+    }
+
+    return tail;
+  }
+}
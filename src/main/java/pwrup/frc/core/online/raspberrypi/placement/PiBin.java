@@ -0,0 +1,31 @@
+package pwrup.frc.core.online.raspberrypi.placement;
+
+import lombok.Getter;
+
+/**
+ * A Pi as seen by a {@link PlacementStrategy}: how much process weight it can
+ * take and how much it already carries.
+ */
+@Getter
+public final class PiBin {
+
+  /** The Pi's name, or its host if the name is unknown. */
+  private final String key;
+  private final double capacity;
+  private double load;
+
+  PiBin(String key, double capacity, double load) {
+    this.key = key;
+    this.capacity = capacity;
+    this.load = load;
+  }
+
+  /** Capacity left before this Pi is full. */
+  public double getRemaining() {
+    return capacity - load;
+  }
+
+  void add(double weight) {
+    load += weight;
+  }
+}
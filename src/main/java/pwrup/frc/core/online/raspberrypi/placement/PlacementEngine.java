@@ -0,0 +1,211 @@
+package pwrup.frc.core.online.raspberrypi.placement;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import pwrup.frc.core.online.raspberrypi.ConstrainedProcess;
+import pwrup.frc.core.online.raspberrypi.RaspberryPi;
+import pwrup.frc.core.online.raspberrypi.WeightedProcess;
+
+/**
+ * Assigns processes to Pis.
+ *
+ * <p>
+ * A process may only go on a Pi that:
+ * <ul>
+ * <li>is listed by the process's {@link ConstrainedProcess}, if any. Pis are
+ * matched by name or by host;</li>
+ * <li>does not run a process from one of the process's anti-affinity
+ * groups;</li>
+ * <li>has enough capacity left.</li>
+ * </ul>
+ * The {@link PlacementStrategy} picks among the Pis that qualify. If a process
+ * fits nowhere, capacity is relaxed and it goes to the Pi with the most room
+ * left. Breaking a constraint or an anti-affinity group is an error.
+ * </p>
+ *
+ * <p>
+ * The same inputs always give the same placement: Pis are ordered by name (or
+ * host) and, for strategies placing heaviest first, processes by weight and
+ * then enum ordinal.
+ * </p>
+ *
+ * @param <P> the process enum
+ */
+public class PlacementEngine<P extends Enum<P> & Comparable<P> & WeightedProcess> {
+
+  private final PlacementStrategy strategy;
+  private final Map<String, Double> capacities = new HashMap<>();
+  private double defaultCapacity = Double.POSITIVE_INFINITY;
+  private final List<Set<P>> antiAffinityGroups = new ArrayList<>();
+  private final List<ConstrainedProcess<P>> constraints = new ArrayList<>();
+
+  public PlacementEngine(PlacementStrategy strategy) {
+    this.strategy = strategy;
+  }
+
+  /**
+   * Sets the capacity of the Pi with the given name or host, in the same unit as
+   * {@link WeightedProcess#getWeight()}. A Pi 5 might get twice the capacity of
+   * a Pi 4.
+   */
+  public PlacementEngine<P> withCapacity(String piNameOrHost, double capacity) {
+    capacities.put(piNameOrHost, capacity);
+    return this;
+  }
+
+  /** Capacity of Pis without an explicit one. Unlimited by default. */
+  public PlacementEngine<P> withDefaultCapacity(double capacity) {
+    this.defaultCapacity = capacity;
+    return this;
+  }
+
+  /** No two of {@code processes} may run on the same Pi. */
+  @SafeVarargs
+  public final PlacementEngine<P> withAntiAffinity(P... processes) {
+    antiAffinityGroups.add(Set.of(processes));
+    return this;
+  }
+
+  /** Restricts processes to the Pis their constraint lists. */
+  public PlacementEngine<P> withConstraints(List<ConstrainedProcess<P>> constrainedProcesses) {
+    constraints.addAll(constrainedProcesses);
+    return this;
+  }
+
+  /**
+   * Places {@code processes} on {@code pis}. Processes the Pis already run count
+   * toward their load and anti-affinity. Nothing is changed on the Pis.
+   *
+   * @return the processes to add to each Pi, in placement order
+   * @throws IllegalStateException if a process has no Pi it is allowed on
+   */
+  public Map<RaspberryPi<P>, List<P>> place(List<RaspberryPi<P>> pis, List<P> processes) {
+    var orderedPis = new ArrayList<>(pis);
+    orderedPis.sort(Comparator.comparing(PlacementEngine::keyOf));
+
+    var bins = new LinkedHashMap<RaspberryPi<P>, PiBin>();
+    var running = new HashMap<RaspberryPi<P>, List<P>>();
+    var placement = new LinkedHashMap<RaspberryPi<P>, List<P>>();
+    for (var pi : orderedPis) {
+      double load = pi.getWeight();
+      for (P process : pi.getProcessesToRun()) {
+        load += process.getWeight();
+      }
+
+      String key = keyOf(pi);
+      bins.put(pi, new PiBin(key, capacityOf(pi), load));
+      running.put(pi, new ArrayList<>(pi.getProcessesToRun()));
+      placement.put(pi, new ArrayList<>());
+    }
+
+    var ordered = new ArrayList<>(processes);
+    if (strategy.placesHeaviestFirst()) {
+      ordered.sort(Comparator
+          .comparingDouble((P p) -> p.getWeight())
+          .reversed()
+          .thenComparingInt(Enum::ordinal));
+    }
+
+    for (P process : ordered) {
+      double weight = process.getWeight();
+      var allowed = new ArrayList<RaspberryPi<P>>();
+      var fitting = new ArrayList<PiBin>();
+      for (var pi : orderedPis) {
+        if (!isAllowed(process, pi, running.get(pi))) {
+          continue;
+        }
+
+        allowed.add(pi);
+        var bin = bins.get(pi);
+        if (bin.getRemaining() >= weight) {
+          fitting.add(bin);
+        }
+      }
+
+      if (allowed.isEmpty()) {
+        throw new IllegalStateException("No eligible Pis found for process: " + process);
+      }
+
+      PiBin chosen;
+      if (!fitting.isEmpty()) {
+        chosen = strategy.choose(weight, fitting);
+      } else {
+        chosen = bins.get(allowed.get(0));
+        for (var pi : allowed) {
+          if (bins.get(pi).getRemaining() > chosen.getRemaining()) {
+            chosen = bins.get(pi);
+          }
+        }
+
+        DriverStation.reportWarning(
+            "No Pi has capacity left for " + process + "; overloading " + chosen.getKey(), false);
+      }
+
+      var pi = piOf(bins, chosen);
+      chosen.add(weight);
+      running.get(pi).add(process);
+      placement.get(pi).add(process);
+    }
+
+    return placement;
+  }
+
+  /** Places {@code processes} and adds them to the Pis. */
+  public void apply(List<RaspberryPi<P>> pis, List<P> processes) {
+    place(pis, processes).forEach((pi, placed) -> placed.forEach(pi::addProcess));
+  }
+
+  private boolean isAllowed(P process, RaspberryPi<P> pi, List<P> runningOnPi) {
+    for (var constraint : constraints) {
+      if (constraint.equalsToProcess(process)) {
+        var allowedPis = constraint.getPisToRunOn();
+        if (!allowedPis.contains(pi.getHost()) && (pi.getName() == null || !allowedPis.contains(pi.getName()))) {
+          return false;
+        }
+      }
+    }
+
+    for (var group : antiAffinityGroups) {
+      if (!group.contains(process)) {
+        continue;
+      }
+
+      for (P other : runningOnPi) {
+        if (group.contains(other)) {
+          return false;
+        }
+      }
+    }
+
+    return true;
+  }
+
+  private double capacityOf(RaspberryPi<P> pi) {
+    if (pi.getName() != null && capacities.containsKey(pi.getName())) {
+      return capacities.get(pi.getName());
+    }
+
+    return capacities.getOrDefault(pi.getHost(), defaultCapacity);
+  }
+
+  private RaspberryPi<P> piOf(Map<RaspberryPi<P>, PiBin> bins, PiBin bin) {
+    for (var entry : bins.entrySet()) {
+      if (entry.getValue() == bin) {
+        return entry.getKey();
+      }
+    }
+
+    throw new IllegalStateException("Strategy chose a Pi that was not offered: " + bin.getKey());
+  }
+
+  private static String keyOf(RaspberryPi<?> pi) {
+    return pi.getName() != null ? pi.getName() : pi.getHost();
+  }
+}
@@ -0,0 +1,88 @@
+package pwrup.frc.core.online.raspberrypi.placement;
+
+import java.util.List;
+
+/**
+ * Decides which Pi a process goes to.
+ *
+ * <p>
+ * The {@link PlacementEngine} hands the strategy only Pis the process is
+ * allowed on and fits on, ordered by {@link PiBin#getKey()}, so a strategy
+ * only has to pick one. Strategies must be deterministic.
+ * </p>
+ */
+public interface PlacementStrategy {
+
+  /**
+   * Puts each process on the least loaded Pi it fits on, in the order the
+   * processes were given. Without capacities every Pi fits, so this simply
+   * spreads the load evenly.
+   */
+  PlacementStrategy GREEDY = new PlacementStrategy() {
+    @Override
+    public PiBin choose(double weight, List<PiBin> candidates) {
+      PiBin best = candidates.get(0);
+      for (var bin : candidates) {
+        if (bin.getLoad() < best.getLoad()) {
+          best = bin;
+        }
+      }
+
+      return best;
+    }
+  };
+
+  /**
+   * First-fit decreasing: heaviest processes first, each on the first Pi with
+   * room. Fills Pis in order, so it needs capacities to be useful.
+   */
+  PlacementStrategy FIRST_FIT_DECREASING = new PlacementStrategy() {
+    @Override
+    public boolean placesHeaviestFirst() {
+      return true;
+    }
+
+    @Override
+    public PiBin choose(double weight, List<PiBin> candidates) {
+      return candidates.get(0);
+    }
+  };
+
+  /**
+   * Best-fit decreasing: heaviest processes first, each on the Pi it leaves
+   * with the least room. Packs tighter than first fit; also needs capacities.
+   */
+  PlacementStrategy BEST_FIT_DECREASING = new PlacementStrategy() {
+    @Override
+    public boolean placesHeaviestFirst() {
+      return true;
+    }
+
+    @Override
+    public PiBin choose(double weight, List<PiBin> candidates) {
+      PiBin best = candidates.get(0);
+      for (var bin : candidates) {
+        if (bin.getRemaining() < best.getRemaining()) {
+          best = bin;
+        }
+      }
+
+      return best;
+    }
+  };
+
+  /**
+   * Whether processes are placed heaviest first (ties broken by enum ordinal)
+   * instead of in the order they were given.
+   */
+  default boolean placesHeaviestFirst() {
+    return false;
+  }
+
+  /**
+   * Picks the Pi for a process of the given weight.
+   *
+   * @param candidates non-empty, ordered by {@link PiBin#getKey()}
+   */
+  PiBin choose(double weight, List<PiBin> candidates);
+}
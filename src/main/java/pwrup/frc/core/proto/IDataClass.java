@@ -1,7 +1,32 @@
 package pwrup.frc.core.proto;
 
+import java.nio.ByteBuffer;
+
 public interface IDataClass {
   public byte[] getRawConstructedProtoData();
 
   public String getPublishTopic();
+
+  /**
+   * Serializes the current data into {@code buffer}, starting at its current
+   * position.
+   *
+   * <p>
+   * The default implementation copies the result of
+   * {@link #getRawConstructedProtoData()}. Implementations that keep a protobuf
+   * message around can override this to write straight into the buffer, e.g.
+   * with {@code message.writeTo(CodedOutputStream.newInstance(buffer))}, and
+   * skip the intermediate array. If the buffer is too small this should throw
+   * {@link java.nio.BufferOverflowException}; the caller then retries with a
+   * larger buffer.
+   * </p>
+   *
+   * @param buffer the buffer to write into
+   * @return the number of bytes written
+   */
+  public default int writeRawConstructedProtoData(ByteBuffer buffer) {
+    byte[] data = getRawConstructedProtoData();
+    buffer.put(data);
+    return data.length;
+  }
 }
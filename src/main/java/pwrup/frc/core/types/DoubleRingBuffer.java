@@ -0,0 +1,166 @@
+package pwrup.frc.core.types;
+
+/**
+ * Fixed-size ring of doubles that keeps the newest {@code capacity} samples.
+ *
+ * <p>
+ * Statistics are computed over the samples currently held. None of the methods
+ * allocate; percentiles are found with quickselect on a scratch array owned by
+ * the buffer. Not thread safe.
+ * </p>
+ */
+public class DoubleRingBuffer {
+
+  private final double[] values;
+  private final double[] scratch;
+  private int next = 0;
+  private int size = 0;
+
+  public DoubleRingBuffer(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+    }
+
+    this.values = new double[capacity];
+    this.scratch = new double[capacity];
+  }
+
+  /** Adds a sample, overwriting the oldest one if the buffer is full. */
+  public void add(double value) {
+    values[next] = value;
+    next = (next + 1) % values.length;
+    if (size < values.length) {
+      size++;
+    }
+  }
+
+  /** The {@code i}-th sample held, oldest first. */
+  public double get(int i) {
+    if (i < 0 || i >= size) {
+      throw new IndexOutOfBoundsException(i);
+    }
+
+    return values[(next - size + i + values.length) % values.length];
+  }
+
+  /** The newest sample, or {@code NaN} if empty. */
+  public double getLatest() {
+    return size == 0 ? Double.NaN : values[(next - 1 + values.length) % values.length];
+  }
+
+  public int size() {
+    return size;
+  }
+
+  public int capacity() {
+    return values.length;
+  }
+
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  public void clear() {
+    next = 0;
+    size = 0;
+  }
+
+  /** Smallest sample, or {@code NaN} if empty. */
+  public double min() {
+    if (size == 0) {
+      return Double.NaN;
+    }
+
+    double min = Double.POSITIVE_INFINITY;
+    for (int i = 0; i < size; i++) {
+      min = Math.min(min, values[i]);
+    }
+
+    return min;
+  }
+
+  /** Largest sample, or {@code NaN} if empty. */
+  public double max() {
+    if (size == 0) {
+      return Double.NaN;
+    }
+
+    double max = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < size; i++) {
+      max = Math.max(max, values[i]);
+    }
+
+    return max;
+  }
+
+  /** Mean of the samples, or {@code NaN} if empty. */
+  public double mean() {
+    if (size == 0) {
+      return Double.NaN;
+    }
+
+    double sum = 0;
+    for (int i = 0; i < size; i++) {
+      sum += values[i];
+    }
+
+    return sum / size;
+  }
+
+  /**
+   * The sample at the given percentile (nearest rank), or {@code NaN} if empty.
+   *
+   * @param percentile in [0, 100]
+   */
+  public double percentile(double percentile) {
+    if (size == 0) {
+      return Double.NaN;
+    }
+
+    int rank = (int) Math.ceil(percentile / 100.0 * size) - 1;
+    rank = Math.max(0, Math.min(size - 1, rank));
+
+    // the samples held are values[0, size) in some order, whichever slot is
+    // oldest
+    System.arraycopy(values, 0, scratch, 0, size);
+    return select(scratch, size, rank);
+  }
+
+  /** Hoare's quickselect: the k-th smallest of a[0, n), partially reordering a. */
+  private static double select(double[] a, int n, int k) {
+    int lo = 0;
+    int hi = n - 1;
+    while (lo < hi) {
+      double pivot = a[(lo + hi) >>> 1];
+      int i = lo;
+      int j = hi;
+      while (i <= j) {
+        while (a[i] < pivot) {
+          i++;
+        }
+
+        while (a[j] > pivot) {
+          j--;
+        }
+
+        if (i <= j) {
+          double t = a[i];
+          a[i] = a[j];
+          a[j] = t;
+          i++;
+          j--;
+        }
+      }
+
+      if (k <= j) {
+        hi = j;
+      } else if (k >= i) {
+        lo = i;
+      } else {
+        return a[k];
+      }
+    }
+
+    return a[k];
+  }
+}
@@ -0,0 +1,51 @@
+package pwrup.frc.core.types;
+
+/**
+ * Bucket math for log-linear histograms in the style of HdrHistogram: values
+ * below {@value #SUB_BUCKETS} get a bucket each, and every power of two above
+ * that is split into {@value #SUB_BUCKETS} linear buckets. A value is thus
+ * known to within ~12% from its bucket index alone.
+ */
+public final class LogLinearBuckets {
+
+  public static final int SUB_BUCKET_BITS = 3;
+  public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private LogLinearBuckets() {
+  }
+
+  /** Number of buckets needed for values up to {@link #maxValue(int)}. */
+  public static int bucketCount(int maxMagnitude) {
+    return (maxMagnitude - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+  }
+
+  /** Largest value that fits, 2^({@code maxMagnitude} + 1) - 1. */
+  public static long maxValue(int maxMagnitude) {
+    return (1L << (maxMagnitude + 1)) - 1;
+  }
+
+  /** Index of the bucket holding the non-negative {@code value}. */
+  public static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+
+    int magnitude = 63 - Long.numberOfLeadingZeros(value);
+    int shift = magnitude - SUB_BUCKET_BITS;
+    int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /** Largest value that falls into bucket {@code index}. */
+  public static long highestValueInBucket(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+
+    int magnitude = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    int shift = magnitude - SUB_BUCKET_BITS;
+    long lowest = (long) (SUB_BUCKETS + subBucket) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,73 @@
+package pwrup.frc.core.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import edu.wpi.first.math.geometry.Pose2d;
+
+class PoseErrorTrackerTest {
+
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void matchesABruteForceWindowWhileTheRingWraps() {
+    int window = 7;
+    var tracker = new PoseErrorTracker<Pose2d>(window);
+    var random = new Random(4765);
+    List<double[]> samples = new ArrayList<>();
+
+    for (int n = 0; n < 100; n++) {
+      double[] sample = {
+          random.nextGaussian(), random.nextGaussian(), random.nextGaussian() };
+      samples.add(sample);
+      tracker.addObservation(sample[0], sample[1], sample[2]);
+
+      var recent = samples.subList(Math.max(0, samples.size() - window), samples.size());
+      double translationSqSum = 0.0;
+      double rotationSqSum = 0.0;
+      double maxTranslation = 0.0;
+      double maxRotation = 0.0;
+      for (double[] s : recent) {
+        double translation = Math.hypot(s[0], s[1]);
+        translationSqSum += translation * translation;
+        rotationSqSum += s[2] * s[2];
+        maxTranslation = Math.max(maxTranslation, translation);
+        if (Math.abs(s[2]) > Math.abs(maxRotation)) {
+          maxRotation = s[2];
+        }
+      }
+
+      String at = "after sample " + n;
+      assertEquals(recent.size(), tracker.getNumSamples(), at);
+      assertEquals(Math.sqrt(translationSqSum / recent.size()), tracker.getTranslationRMSE(), EPSILON, at);
+      assertEquals(Math.sqrt(rotationSqSum / recent.size()), tracker.getRotationRMSE(), EPSILON, at);
+      assertEquals(maxTranslation, tracker.getMaxTranslationErrorNorm(), EPSILON, at);
+      assertEquals(maxRotation, tracker.getMaxRotationErrorRadians(), EPSILON, at);
+    }
+  }
+
+  @Test
+  void forgetsEverySampleOnReset() {
+    var tracker = new PoseErrorTracker<Pose2d>(3);
+    tracker.addObservation(3.0, 4.0, -2.0);
+    tracker.reset();
+    assertEquals(0, tracker.getNumSamples());
+    assertEquals(0.0, tracker.getTranslationRMSE(), EPSILON);
+
+    tracker.addObservation(0.0, 1.0, 0.5);
+    assertEquals(1, tracker.getNumSamples());
+    assertEquals(1.0, tracker.getMaxTranslationErrorNorm(), EPSILON);
+    assertEquals(0.5, tracker.getMaxRotationErrorRadians(), EPSILON);
+  }
+
+  @Test
+  void rejectsAnEmptyWindow() {
+    assertThrows(IllegalArgumentException.class, () -> new PoseErrorTracker<Pose2d>(0));
+  }
+}
@@ -0,0 +1,94 @@
+package pwrup.frc.core.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class PoseHistoryTest {
+
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void interpolatesAStraightLineAndSpeedsLinearly() {
+    var history = new PoseHistory(8);
+    history.addSample(0.0, 0.0, 0.0, 0.0, 1.0, 0.0, 0.0);
+    history.addSample(1.0, 2.0, 0.0, 0.0, 3.0, 0.0, 0.0);
+
+    double[] state = new double[6];
+    assertTrue(history.sample(0.25, state));
+    assertEquals(0.5, state[0], EPSILON);
+    assertEquals(0.0, state[1], EPSILON);
+    assertEquals(0.0, state[2], EPSILON);
+    assertEquals(1.5, state[3], EPSILON);
+  }
+
+  @Test
+  void followsTheArcBetweenTwoPoses() {
+    // a quarter turn on a circle of radius 1 centred on (0, 1)
+    var history = new PoseHistory(8);
+    history.addSample(0.0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    history.addSample(1.0, 1.0, 1.0, Math.PI / 2, 0.0, 0.0, 0.0);
+
+    double[] state = new double[6];
+    history.sample(0.5, state);
+    assertEquals(Math.sin(Math.PI / 4), state[0], EPSILON);
+    assertEquals(1.0 - Math.cos(Math.PI / 4), state[1], EPSILON);
+    assertEquals(Math.PI / 4, state[2], EPSILON);
+  }
+
+  @Test
+  void interpolatesHeadingAcrossTheWrap() {
+    var history = new PoseHistory(8);
+    history.addSample(0.0, 0.0, 0.0, Math.PI - 0.1, 0.0, 0.0, 0.0);
+    history.addSample(1.0, 0.0, 0.0, -Math.PI + 0.1, 0.0, 0.0, 0.0);
+
+    double[] state = new double[6];
+    history.sample(0.5, state);
+    assertEquals(-1.0, Math.cos(state[2]), EPSILON);
+    assertEquals(0.0, Math.sin(state[2]), EPSILON);
+  }
+
+  @Test
+  void clampsOutsideTheHistory() {
+    var history = new PoseHistory(8);
+    assertFalse(history.getPose(0.0).isPresent());
+
+    history.addSample(1.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    history.addSample(2.0, 2.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+
+    double[] state = new double[6];
+    history.sample(0.0, state);
+    assertEquals(1.0, state[0], EPSILON);
+    history.sample(5.0, state);
+    assertEquals(2.0, state[0], EPSILON);
+  }
+
+  @Test
+  void keepsTheNewestSamplesWhenTheRingWraps() {
+    var history = new PoseHistory(3);
+    for (int i = 0; i < 5; i++) {
+      history.addSample(i, i * 10.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    assertEquals(3, history.size());
+    assertEquals(2.0, history.getOldestTimestamp(), EPSILON);
+    assertEquals(4.0, history.getNewestTimestamp(), EPSILON);
+
+    double[] state = new double[6];
+    history.sample(3.5, state);
+    assertEquals(35.0, state[0], EPSILON);
+    history.sample(0.0, state);
+    assertEquals(20.0, state[0], EPSILON);
+  }
+
+  @Test
+  void ignoresSamplesThatAreNotNewer() {
+    var history = new PoseHistory(4);
+    assertTrue(history.addSample(1.0, 1.0, 0.0, 0.0, 0.0, 0.0, 0.0));
+    assertFalse(history.addSample(1.0, 5.0, 0.0, 0.0, 0.0, 0.0, 0.0));
+    assertFalse(history.addSample(0.5, 5.0, 0.0, 0.0, 0.0, 0.0, 0.0));
+    assertEquals(1, history.size());
+  }
+}
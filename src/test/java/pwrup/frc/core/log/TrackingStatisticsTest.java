@@ -0,0 +1,81 @@
+package pwrup.frc.core.log;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import pwrup.frc.core.log.TrackingStatistics.Window;
+
+class TrackingStatisticsTest {
+
+  private static final double EPSILON = 1e-9;
+
+  @Test
+  void windowsOnlyHoldRecentSamples() {
+    var statistics = new TrackingStatistics();
+    statistics.addObservation(0.0, 3.0, 4.0, -0.5);
+    statistics.addObservation(5.0, 1.0, 0.0, 0.1);
+
+    assertEquals(1, statistics.getCount(Window.LAST_1S));
+    assertEquals(1.0, statistics.getTranslationRMSE(Window.LAST_1S), EPSILON);
+    assertEquals(2, statistics.getCount(Window.LAST_10S));
+    assertEquals(Math.sqrt(13.0), statistics.getTranslationRMSE(Window.LAST_10S), EPSILON);
+    assertEquals(Math.sqrt(0.13), statistics.getRotationRMSE(Window.LAST_10S), EPSILON);
+    assertEquals(5.0, statistics.getMaxTranslationError(Window.LAST_10S), EPSILON);
+
+    statistics.addObservation(16.0, 0.0, 0.0, 0.0);
+    assertEquals(1, statistics.getCount(Window.LAST_10S));
+    assertEquals(3, statistics.getCount(Window.RUN));
+  }
+
+  @Test
+  void lateSamplesOlderThanTheWindowDoNotWipeNewerBuckets() {
+    var statistics = new TrackingStatistics();
+    statistics.addObservation(12.0, 1.0, 0.0, 0.0);
+    // maps to the same slot of the 10 s window as t = 12
+    statistics.addObservation(2.0, 2.0, 0.0, 0.0);
+
+    assertEquals(1, statistics.getCount(Window.LAST_10S));
+    assertEquals(1.0, statistics.getTranslationRMSE(Window.LAST_10S), EPSILON);
+    assertEquals(2, statistics.getCount(Window.RUN));
+  }
+
+  @Test
+  void lateSamplesInsideTheWindowAreCounted() {
+    var statistics = new TrackingStatistics();
+    statistics.addObservation(12.5, 1.0, 0.0, 0.0);
+    statistics.addObservation(9.0, 1.0, 0.0, 0.0);
+
+    assertEquals(2, statistics.getCount(Window.LAST_10S));
+    assertEquals(1, statistics.getCount(Window.LAST_1S));
+  }
+
+  @Test
+  void percentilesAreWithinTheSketchAccuracy() {
+    var statistics = new TrackingStatistics();
+    for (int i = 1; i <= 100; i++) {
+      statistics.addObservation(i * 0.001, i * 0.01, 0.0, 0.0);
+    }
+
+    assertEquals(0.5, statistics.getTranslationPercentile(Window.LAST_1S, 50), 0.5 * 0.125);
+    assertEquals(0.9, statistics.getTranslationPercentile(Window.LAST_1S, 90), 0.9 * 0.125);
+    assertEquals(1.0, statistics.getMaxTranslationError(Window.RUN), 1.0 * 0.125);
+  }
+
+  @Test
+  void resetClearsEveryWindow() {
+    var statistics = new TrackingStatistics();
+    statistics.addObservation(1.0, 1.0, 1.0, 1.0);
+    assertEquals(1, statistics.getCount(Window.LAST_1S));
+
+    statistics.reset();
+    for (var window : Window.values()) {
+      assertEquals(0, statistics.getCount(window));
+      assertEquals(0.0, statistics.getTranslationRMSE(window), EPSILON);
+    }
+
+    statistics.addObservation(0.5, 2.0, 0.0, 0.0);
+    assertEquals(1, statistics.getCount(Window.LAST_1S));
+    assertEquals(2.0, statistics.getTranslationRMSE(Window.RUN), EPSILON);
+  }
+}
@@ -0,0 +1,100 @@
+package pwrup.frc.core.online;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.jupiter.api.Test;
+
+import autobahn.client.Address;
+import autobahn.client.AutobahnClient;
+
+class CoalescingPublishQueueTest {
+
+  private static final long WAIT_MS = 2000L;
+
+  /** Records every publish and leaves it outstanding until a test completes it. */
+  private static final class RecordingClient extends AutobahnClient {
+    final List<String> topics = new ArrayList<>();
+    final List<byte[]> payloads = new ArrayList<>();
+    final List<CompletableFuture<Void>> publishes = new ArrayList<>();
+
+    RecordingClient() {
+      super(new Address("localhost", 8080));
+    }
+
+    @Override
+    public synchronized CompletableFuture<Void> publish(String topic, byte[] payload) {
+      var publish = new CompletableFuture<Void>();
+      topics.add(topic);
+      payloads.add(payload);
+      publishes.add(publish);
+      return publish;
+    }
+
+    synchronized int count() {
+      return publishes.size();
+    }
+
+    synchronized void complete(int index) {
+      publishes.get(index).complete(null);
+    }
+  }
+
+  @Test
+  void stopsSendingWhileEightPublishesAreInFlight() throws InterruptedException {
+    var client = new RecordingClient();
+    var queue = new CoalescingPublishQueue(() -> client, new PublishBufferPool(), "test-publisher");
+
+    for (int i = 0; i < 20; i++) {
+      queue.offer("topic" + i, new byte[] { (byte) i });
+    }
+
+    awaitPublishes(client, 8);
+    Thread.sleep(100);
+    assertEquals(8, client.count());
+
+    client.complete(0);
+    client.complete(1);
+    awaitPublishes(client, 10);
+    Thread.sleep(100);
+    assertEquals(10, client.count());
+    assertEquals(2L, queue.getSentCount());
+  }
+
+  @Test
+  void replacesAWaitingPayloadWithTheNewestOne() throws InterruptedException {
+    var client = new RecordingClient();
+    var queue = new CoalescingPublishQueue(() -> client, new PublishBufferPool(), "test-publisher");
+
+    for (int i = 0; i < 8; i++) {
+      queue.offer("filler" + i, new byte[] { (byte) i });
+    }
+    awaitPublishes(client, 8);
+
+    byte[] newest = { 2 };
+    queue.offer("pose", new byte[] { 1 });
+    queue.offer("pose", newest);
+    assertEquals(1, queue.depth());
+    assertEquals(1L, queue.getCoalescedCount());
+
+    client.complete(0);
+    awaitPublishes(client, 9);
+    synchronized (client) {
+      assertEquals("pose", client.topics.get(8));
+      assertSame(newest, client.payloads.get(8));
+    }
+    assertEquals(0, queue.depth());
+  }
+
+  private static void awaitPublishes(RecordingClient client, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + WAIT_MS;
+    while (client.count() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    assertEquals(count, client.count());
+  }
+}
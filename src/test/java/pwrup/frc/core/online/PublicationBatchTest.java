@@ -0,0 +1,78 @@
+package pwrup.frc.core.online;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class PublicationBatchTest {
+
+  @Test
+  void decodesEntriesInTheOrderTheyWereAdded() {
+    var batch = new PublicationBatch();
+    batch.add("pose", new byte[] { 1, 2, 3 });
+    batch.add("empty", new byte[0]);
+    batch.add("\u00e9tat", new byte[] { 4 });
+
+    byte[] frame = batch.toByteArray();
+    assertEquals(batch.encodedSize(), frame.length);
+
+    List<String> topics = new ArrayList<>();
+    List<byte[]> payloads = new ArrayList<>();
+    PublicationBatch.decode(frame, (topic, payload) -> {
+      topics.add(topic);
+      payloads.add(payload);
+    });
+
+    assertEquals(List.of("pose", "empty", "\u00e9tat"), topics);
+    assertArrayEquals(new byte[] { 1, 2, 3 }, payloads.get(0));
+    assertArrayEquals(new byte[0], payloads.get(1));
+    assertArrayEquals(new byte[] { 4 }, payloads.get(2));
+  }
+
+  @Test
+  void writesTheSameFrameAfterClear() {
+    var batch = new PublicationBatch();
+    batch.add("stale", new byte[] { 9, 9 });
+    batch.clear();
+    assertTrue(batch.isEmpty());
+
+    batch.add("pose", new byte[] { 1 });
+    byte[] frame = new byte[batch.encodedSize()];
+    batch.writeTo(frame);
+
+    var fresh = new PublicationBatch();
+    fresh.add("pose", new byte[] { 1 });
+    assertArrayEquals(fresh.toByteArray(), frame);
+  }
+
+  @Test
+  void rejectsATruncatedFrameWithoutDeliveringAnyEntry() {
+    var batch = new PublicationBatch();
+    batch.add("first", new byte[] { 1 });
+    batch.add("second", new byte[] { 2, 3, 4 });
+    byte[] frame = batch.toByteArray();
+    byte[] truncated = Arrays.copyOf(frame, frame.length - 1);
+
+    List<String> delivered = new ArrayList<>();
+    assertThrows(IllegalArgumentException.class,
+        () -> PublicationBatch.decode(truncated, (topic, payload) -> delivered.add(topic)));
+    assertTrue(delivered.isEmpty());
+  }
+
+  @Test
+  void rejectsAnUnknownVersion() {
+    byte[] frame = new PublicationBatch().toByteArray();
+    frame[0] = PublicationBatch.VERSION + 1;
+
+    assertThrows(IllegalArgumentException.class,
+        () -> PublicationBatch.decode(frame, (topic, payload) -> {
+        }));
+  }
+}
@@ -0,0 +1,137 @@
+package pwrup.frc.core.online.raspberrypi.placement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import pwrup.frc.core.online.raspberrypi.ConstrainedProcess;
+import pwrup.frc.core.online.raspberrypi.RaspberryPi;
+import pwrup.frc.core.online.raspberrypi.WeightedProcess;
+
+class PlacementEngineTest {
+
+  private enum Process implements WeightedProcess {
+    SMALL(1), MEDIUM(2), LARGE(3), HUGE(4);
+
+    private final double weight;
+
+    Process(double weight) {
+      this.weight = weight;
+    }
+
+    @Override
+    public double getWeight() {
+      return weight;
+    }
+  }
+
+  private static RaspberryPi<Process> pi(String name, Process... running) {
+    var pi = new RaspberryPi<Process>("10.47.65." + (name.charAt(0) - 'a' + 10), running);
+    pi.setName(name);
+    return pi;
+  }
+
+  @Test
+  void greedyPutsEachProcessOnTheLeastLoadedPi() {
+    var a = pi("a");
+    var b = pi("b");
+
+    var placement = new PlacementEngine<Process>(PlacementStrategy.GREEDY)
+        .place(List.of(b, a), List.of(Process.LARGE, Process.SMALL, Process.MEDIUM));
+
+    assertEquals(List.of(Process.LARGE), placement.get(a));
+    assertEquals(List.of(Process.SMALL, Process.MEDIUM), placement.get(b));
+  }
+
+  @Test
+  void firstFitDecreasingFillsPisInOrder() {
+    var a = pi("a");
+    var b = pi("b");
+
+    var placement = new PlacementEngine<Process>(PlacementStrategy.FIRST_FIT_DECREASING)
+        .withDefaultCapacity(5)
+        .place(List.of(a, b), List.of(Process.SMALL, Process.HUGE, Process.MEDIUM, Process.LARGE));
+
+    assertEquals(List.of(Process.HUGE, Process.SMALL), placement.get(a));
+    assertEquals(List.of(Process.LARGE, Process.MEDIUM), placement.get(b));
+  }
+
+  @Test
+  void bestFitDecreasingPicksTheTightestPi() {
+    var a = pi("a");
+    var b = pi("b");
+
+    var placement = new PlacementEngine<Process>(PlacementStrategy.BEST_FIT_DECREASING)
+        .withCapacity("a", 6)
+        .withCapacity("b", 4)
+        .place(List.of(a, b), List.of(Process.MEDIUM, Process.HUGE));
+
+    assertEquals(List.of(Process.MEDIUM), placement.get(a));
+    assertEquals(List.of(Process.HUGE), placement.get(b));
+  }
+
+  @Test
+  void keepsAntiAffineProcessesApartFromRunningOnes() {
+    var a = pi("a", Process.LARGE);
+    var b = pi("b");
+    b.setWeight(10);
+
+    var placement = new PlacementEngine<Process>(PlacementStrategy.GREEDY)
+        .withAntiAffinity(Process.LARGE, Process.HUGE)
+        .place(List.of(a, b), List.of(Process.HUGE));
+
+    assertEquals(List.of(), placement.get(a));
+    assertEquals(List.of(Process.HUGE), placement.get(b));
+  }
+
+  @Test
+  void honoursConstraintsByPiName() {
+    var a = pi("a");
+    var b = pi("b");
+    var engine = new PlacementEngine<Process>(PlacementStrategy.GREEDY)
+        .withConstraints(List.of(new ConstrainedProcess<>(Process.SMALL, "b")));
+
+    var placement = engine.place(List.of(a, b), List.of(Process.HUGE, Process.SMALL));
+
+    assertEquals(List.of(Process.HUGE), placement.get(a));
+    assertEquals(List.of(Process.SMALL), placement.get(b));
+  }
+
+  @Test
+  void failsWhenAProcessIsAllowedNowhere() {
+    var engine = new PlacementEngine<Process>(PlacementStrategy.GREEDY)
+        .withConstraints(List.of(new ConstrainedProcess<>(Process.SMALL, "c")));
+
+    assertThrows(IllegalStateException.class,
+        () -> engine.place(List.of(pi("a"), pi("b")), List.of(Process.SMALL)));
+  }
+
+  @Test
+  void overloadsThePiWithTheMostRoomWhenNothingFits() {
+    var a = pi("a");
+    var b = pi("b");
+    a.setWeight(0.5);
+
+    var placement = new PlacementEngine<Process>(PlacementStrategy.FIRST_FIT_DECREASING)
+        .withDefaultCapacity(1)
+        .place(List.of(a, b), List.of(Process.HUGE));
+
+    assertEquals(List.of(), placement.get(a));
+    assertEquals(List.of(Process.HUGE), placement.get(b));
+  }
+
+  @Test
+  void onlyApplyChangesThePis() {
+    var a = pi("a");
+    var engine = new PlacementEngine<Process>(PlacementStrategy.GREEDY);
+
+    engine.place(List.of(a), List.of(Process.SMALL));
+    assertEquals(List.of(), a.getProcessesToRun());
+
+    engine.apply(List.of(a), List.of(Process.SMALL));
+    assertEquals(List.of(Process.SMALL), a.getProcessesToRun());
+  }
+}